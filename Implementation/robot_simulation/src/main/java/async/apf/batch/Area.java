@@ -0,0 +1,19 @@
+package async.apf.batch;
+
+// Size of a rectangular area, written as "WIDTHxHEIGHT"
+public record Area(int width, int height) {
+    public Area {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Invalid area: " + width + "x" + height + "!");
+        }
+    }
+
+    public long cellCount() {
+        return (long) width * height;
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height;
+    }
+}
@@ -0,0 +1,78 @@
+package async.apf.batch;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs the simulations of a batch on a work-stealing pool with one worker
+ * per core, or as many as configured. The jobs are split in halves until
+ * each task is a single job, so idle workers steal whatever is left and
+ * long simulations do not hold up the rest of the batch. Every job runs to
+ * completion on the worker that picked it up.
+ */
+public final class BatchExecutor implements AutoCloseable {
+    private final ForkJoinPool pool;
+
+    public BatchExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public BatchExecutor(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1!");
+        }
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Runs the task for every job index from 0 to jobCount and waits for all
+     * of them. Nothing is kept of a job once its task returns.
+     */
+    public void forEach(int jobCount, IntConsumer task) throws InterruptedException {
+        if (jobCount == 0) return;
+
+        ForkJoinTask<Void> root = pool.submit(new RangeTask(task, 0, jobCount));
+        try {
+            root.get();
+        }
+        catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            if (ex.getCause() instanceof Error error) throw error;
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    // Never serialized, the tasks only live inside the pool
+    @SuppressWarnings("serial")
+    private static final class RangeTask extends RecursiveAction {
+        private final IntConsumer task;
+        private final int start;
+        private final int end;
+
+        RangeTask(IntConsumer task, int start, int end) {
+            this.task = task;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start == 1) {
+                task.accept(start);
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(
+                new RangeTask(task, start, middle),
+                new RangeTask(task, middle, end));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package async.apf.batch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import async.apf.model.SimulationStatistics;
+
+/**
+ * Writes the summary row of every finished simulation to the CSV file as it
+ * comes in, so a batch never holds its results in memory and a crash only
+ * loses the rows of the last second. Rows are collected in a buffer that is
+ * written when it is full and at least once a second.
+ * <p>
+ * Rows arrive in the order the simulations finish, the first column tells
+ * which run they belong to.
+ */
+public final class BatchResultSink implements AutoCloseable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long FLUSH_INTERVAL_MS = 1000;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final StringBuilder row = new StringBuilder();
+    private final ScheduledExecutorService flusher;
+    private int rowCount = 0;
+    private boolean closed = false;
+    // A failed flush of the background thread, rethrown to the next caller
+    private IOException flushFailure;
+
+    public BatchResultSink(Path file) throws IOException {
+        this(file, BatchSummary.HEADER, false);
+    }
+
+    /**
+     * @param header first line of the file, without the newline
+     * @param append whether to keep the rows already in the file, otherwise
+     * it is overwritten and starts with the header
+     */
+    public BatchResultSink(Path file, String header, boolean append) throws IOException {
+        this.channel = append
+            ? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+            : FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        if (!append || this.channel.size() == 0) {
+            put((header + '\n').getBytes(StandardCharsets.UTF_8));
+            flush();
+        }
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "batch-result-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void accept(int run, SimulationStatistics statistics) throws IOException {
+        row.setLength(0);
+        BatchSummary.appendRow(row, run, statistics);
+        write(row);
+        rowCount++;
+    }
+
+    // Writes rows formatted by the caller, each ending in a newline
+    public synchronized void write(CharSequence rows) throws IOException {
+        if (closed) {
+            throw new IOException("The result file is already closed!");
+        }
+        checkFlushFailure();
+        put(rows.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes everything buffered and waits until it is on the disk.
+     * @return the length of the file
+     */
+    public synchronized long sync() throws IOException {
+        checkFlushFailure();
+        flush();
+        channel.force(false);
+        return channel.size();
+    }
+
+    // Number of rows written by accept(), without the header
+    public synchronized int getRowCount() {
+        return rowCount;
+    }
+
+    public synchronized void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdownNow();
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            try {
+                checkFlushFailure();
+                flush();
+                channel.force(false);
+            }
+            finally {
+                channel.close();
+            }
+        }
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.remaining()) {
+            flush();
+        }
+        if (bytes.length > buffer.capacity()) {
+            channel.write(ByteBuffer.wrap(bytes));
+            return;
+        }
+        buffer.put(bytes);
+    }
+
+    // Must not throw, that would cancel every later flush
+    private synchronized void flushQuietly() {
+        if (closed || flushFailure != null || buffer.position() == 0) return;
+        try {
+            flush();
+        }
+        catch (IOException ex) {
+            flushFailure = ex;
+        }
+    }
+
+    private void checkFlushFailure() throws IOException {
+        if (flushFailure != null) {
+            throw new IOException("Writing the result file failed: " + flushFailure.getMessage(), flushFailure);
+        }
+    }
+}
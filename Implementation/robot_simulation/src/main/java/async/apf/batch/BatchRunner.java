@@ -0,0 +1,183 @@
+package async.apf.batch;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import async.apf.model.AsyncScheduler;
+import async.apf.model.Coordinate;
+import async.apf.model.DiscreteEventSimulation;
+import async.apf.model.events.EventEmitter;
+import async.apf.model.exceptions.InvalidInputException;
+
+/**
+ * Runs a batch of simulations from the command line, without loading any UI
+ * toolkit. Every simulation gets its own seed, derived from the batch seed
+ * before the first one starts, so a batch is reproducible regardless of its
+ * parallelism. The inputs of a simulation are only generated when it starts,
+ * and its summary row is written as soon as it finishes. The percentiles of
+ * the whole batch are written to a second file at the end.
+ * <p>
+ * Run it from the class path, e.g.
+ * {@code java -cp target/classes async.apf.batch.BatchRunner --output out.csv}
+ */
+public final class BatchRunner {
+    private final BatchSettings settings;
+    private final AtomicInteger finished = new AtomicInteger();
+    private final AtomicLong hashCollisions = new AtomicLong();
+    private final StatisticsAggregator aggregator = new StatisticsAggregator();
+
+    // Set up by run()
+    private long[] jobSeeds;
+    private List<Coordinate> initialFromFile;
+    private List<Coordinate> targetFromFile;
+    private BatchResultSink sink;
+
+    public BatchRunner(BatchSettings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) {
+        BatchSettings settings;
+        try {
+            settings = BatchSettings.parse(args);
+        }
+        catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.print(BatchSettings.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        try {
+            new BatchRunner(settings).run();
+        }
+        catch (IOException ex) {
+            System.err.println(ex.getMessage());
+            System.exit(1);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            System.exit(1);
+        }
+    }
+
+    public void run() throws IOException, InterruptedException {
+        prepareJobs();
+        System.err.println("Running " + jobSeeds.length + " simulations with seed " + settings.seed()
+            + " on " + settings.parallelism() + " threads");
+
+        int completed;
+        try (BatchResultSink resultSink = new BatchResultSink(settings.output());
+             BatchExecutor executor = new BatchExecutor(settings.parallelism())) {
+            this.sink = resultSink;
+            executor.forEach(jobSeeds.length, this::runJob);
+            completed = resultSink.getRowCount();
+        }
+        catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        finally {
+            this.sink = null;
+        }
+
+        StatisticsAggregate aggregate = aggregator.merge().getOrDefault(0, new StatisticsAggregate());
+        Files.writeString(settings.summary(), BatchSummary.summarizeAggregate(aggregate));
+        System.err.println(completed + " / " + jobSeeds.length + " simulations completed, written to "
+            + settings.output() + " and " + settings.summary());
+        if (settings.exactRepetitionCheck()) {
+            System.err.println(hashCollisions.get() + " hash collisions were told apart by the exact repetition check");
+        }
+    }
+
+    private void prepareJobs() throws IOException {
+        this.initialFromFile = settings.initialFile() != null
+            ? CoordinateFile.read(settings.initialFile())
+            : null;
+        this.targetFromFile = settings.targetFile() != null
+            ? CoordinateFile.read(settings.targetFile())
+            : null;
+        if (initialFromFile != null && targetFromFile != null && initialFromFile.size() != targetFromFile.size()) {
+            throw new IOException("The initial configuration has " + initialFromFile.size()
+                + " robots, the target pattern " + targetFromFile.size() + "!");
+        }
+        try {
+            if (initialFromFile == null && targetFromFile != null) {
+                BatchSettings.checkFits(targetFromFile.size(), settings.initialWidth(), settings.initialHeight());
+            }
+            if (targetFromFile == null && initialFromFile != null) {
+                BatchSettings.checkFits(initialFromFile.size(), settings.targetWidth(), settings.targetHeight());
+            }
+        }
+        catch (IllegalArgumentException ex) {
+            throw new IOException(ex.getMessage());
+        }
+
+        Random rng = new Random(settings.seed());
+        this.jobSeeds = new long[settings.batchSize()];
+        for (int i = 0; i < jobSeeds.length; i++) {
+            jobSeeds[i] = rng.nextLong();
+        }
+    }
+
+    private static List<Coordinate> generate(Random rng, int robotCount, IntRange widths, IntRange heights) {
+        int width = widths.pick(rng);
+        int height = heights.pick(rng);
+        return PatternGenerator.generateCoordinates(rng, robotCount, width, height);
+    }
+
+    private void reportHashCollisions(int index, long collisions) {
+        if (collisions == 0) return;
+        hashCollisions.addAndGet(collisions);
+        System.err.println("Simulation " + index + " had " + collisions + " hash collisions");
+    }
+
+    // Generates the inputs of one simulation from its seed, runs it and writes its row if it completed
+    private void runJob(int index) {
+        Random rng = new Random(jobSeeds[index]);
+        // A file fixes the robot count
+        int robotCount = initialFromFile != null ? initialFromFile.size()
+            : targetFromFile != null ? targetFromFile.size()
+            : settings.robotCount().pick(rng);
+
+        List<Coordinate> initialConfiguration = initialFromFile != null
+            ? PatternGenerator.copyCoordinates(initialFromFile)
+            : generate(rng, robotCount, settings.initialWidth(), settings.initialHeight());
+        List<Coordinate> targetPattern = targetFromFile != null
+            ? PatternGenerator.copyCoordinates(targetFromFile)
+            : generate(rng, robotCount, settings.targetWidth(), settings.targetHeight());
+
+        boolean completed = false;
+        try {
+            AsyncScheduler scheduler = AsyncScheduler.create(settings.schedulingPolicy(), robotCount, rng.nextLong());
+            DiscreteEventSimulation simulation = new DiscreteEventSimulation(new EventEmitter(), initialConfiguration, targetPattern, scheduler);
+            simulation.setExactRepetitionCheck(settings.exactRepetitionCheck());
+            simulation.run();
+            reportHashCollisions(index, simulation.getHashCollisions());
+            if (simulation.isComplete()) {
+                sink.accept(index, simulation.getStatistics());
+                aggregator.record(0, simulation.getStatistics());
+                completed = true;
+            }
+        }
+        catch (InvalidInputException ex) {
+            System.err.println("Simulation " + index + " has invalid input!");
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        catch (RuntimeException ex) {
+            // One broken run must not take the other jobs of the worker down
+            System.err.println("Simulation " + index + " (seed " + jobSeeds[index] + ") crashed: " + ex);
+        }
+
+        if (!completed) {
+            System.err.println("Simulation " + index + " failed!");
+        }
+        System.err.println(finished.incrementAndGet() + " / " + jobSeeds.length + " simulations finished");
+    }
+}
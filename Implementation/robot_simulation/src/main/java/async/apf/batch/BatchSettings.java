@@ -0,0 +1,150 @@
+package async.apf.batch;
+
+import java.nio.file.Path;
+import java.util.Random;
+
+import async.apf.model.enums.SchedulingPolicy;
+
+/**
+ * Parameters of a command line batch. Initial configurations and target
+ * patterns come either from a file or are generated in a random area, like
+ * the two options of the batch window.
+ */
+public record BatchSettings(
+    int batchSize,
+    IntRange robotCount,
+    Path initialFile,
+    IntRange initialWidth,
+    IntRange initialHeight,
+    Path targetFile,
+    IntRange targetWidth,
+    IntRange targetHeight,
+    long seed,
+    int parallelism,
+    SchedulingPolicy schedulingPolicy,
+    boolean exactRepetitionCheck,
+    Path output,
+    Path summary
+) {
+    public static final String USAGE = """
+        Usage: BatchRunner [options] --output <file>
+          --batch-size <n>              number of simulations (default 100)
+          --robots <min-max>            robot count (default 10-20, ignored with files)
+          --initial-file <file>         fixed initial configuration
+          --initial-width <min-max>     width of random initial areas (default 10-20)
+          --initial-height <min-max>    height of random initial areas (default 10-20)
+          --target-file <file>          fixed target pattern
+          --target-width <min-max>      width of random target areas (default 10-20)
+          --target-height <min-max>     height of random target areas (default 10-20)
+          --seed <n>                    seed of the inputs and schedulers (default random)
+          --parallelism <n>             simulations run at once (default: available processors)
+          --scheduler <policy>          one of UNIFORM_RANDOM, ROUND_ROBIN, RANDOM_PERMUTATION,
+                                        K_BOUNDED_FAIR, PREFER_MOVING (default UNIFORM_RANDOM)
+          --exact-repetition-check      confirm repeated configurations against a log on disk
+                                        instead of trusting their 64-bit hash
+          --output <file>               CSV of the runs to write
+          --summary <file>              CSV of the percentiles of the batch
+                                        (default: the output with -summary before .csv)
+        """;
+
+    public BatchSettings {
+        // With a file the robot count is only known once it is read, see BatchRunner
+        if (initialFile == null && targetFile == null) {
+            checkFits(robotCount.max(), initialWidth, initialHeight);
+            checkFits(robotCount.max(), targetWidth, targetHeight);
+        }
+    }
+
+    public static BatchSettings parse(String[] args) {
+        int batchSize = 100;
+        IntRange robotCount = new IntRange(10, 20);
+        Path initialFile = null;
+        IntRange initialWidth = new IntRange(10, 20);
+        IntRange initialHeight = new IntRange(10, 20);
+        Path targetFile = null;
+        IntRange targetWidth = new IntRange(10, 20);
+        IntRange targetHeight = new IntRange(10, 20);
+        long seed = new Random().nextLong();
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        SchedulingPolicy schedulingPolicy = SchedulingPolicy.UNIFORM_RANDOM;
+        boolean exactRepetitionCheck = false;
+        Path output = null;
+        Path summary = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (option.equals("--exact-repetition-check")) {
+                exactRepetitionCheck = true;
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for " + option + "!");
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--batch-size"     -> batchSize = parsePositive(option, value);
+                case "--robots"         -> robotCount = IntRange.parse(value);
+                case "--initial-file"   -> initialFile = Path.of(value);
+                case "--initial-width"  -> initialWidth = IntRange.parse(value);
+                case "--initial-height" -> initialHeight = IntRange.parse(value);
+                case "--target-file"    -> targetFile = Path.of(value);
+                case "--target-width"   -> targetWidth = IntRange.parse(value);
+                case "--target-height"  -> targetHeight = IntRange.parse(value);
+                case "--seed"           -> seed = parseLong(option, value);
+                case "--parallelism"    -> parallelism = parsePositive(option, value);
+                case "--scheduler"      -> schedulingPolicy = parsePolicy(value);
+                case "--output"         -> output = Path.of(value);
+                case "--summary"        -> summary = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + option + "!");
+            }
+        }
+        if (output == null) {
+            throw new IllegalArgumentException("The --output option is required!");
+        }
+        if (summary == null) {
+            summary = BatchSummary.summaryFileFor(output);
+        }
+
+        return new BatchSettings(batchSize, robotCount,
+            initialFile, initialWidth, initialHeight,
+            targetFile, targetWidth, targetHeight,
+            seed, parallelism, schedulingPolicy, exactRepetitionCheck, output, summary);
+    }
+
+    // Every area the ranges can pick must have room for the robots
+    static void checkFits(int robotCount, IntRange widths, IntRange heights) {
+        if ((long) widths.min() * heights.min() < robotCount) {
+            throw new IllegalArgumentException(robotCount + " robots can't fit a "
+                + widths.min() + "x" + heights.min() + " area!");
+        }
+    }
+
+    static int parsePositive(String option, String value) {
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed >= 1) return parsed;
+        }
+        catch (NumberFormatException ex) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(option + " must be a positive integer, got " + value + "!");
+    }
+
+    private static long parseLong(String option, String value) {
+        try {
+            return Long.parseLong(value.trim());
+        }
+        catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(option + " must be an integer, got " + value + "!");
+        }
+    }
+
+    static SchedulingPolicy parsePolicy(String value) {
+        try {
+            return SchedulingPolicy.valueOf(value.trim().toUpperCase());
+        }
+        catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Unknown scheduler: " + value + "!");
+        }
+    }
+}
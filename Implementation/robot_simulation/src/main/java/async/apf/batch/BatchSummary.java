@@ -0,0 +1,83 @@
+package async.apf.batch;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import async.apf.model.SimulationStatistics;
+import async.apf.model.schedulers.SchedulerMetrics;
+
+// The CSV summary of a batch, shared by the batch window and the command line runner
+public final class BatchSummary {
+    public static final String HEADER = "Run;Robot count;Time (ms);Total steps;Average step count;Highest individual step count;Start width;Start height;Max width;Max height;Phase I step count;Phase II step count;Phase III step count;Phase IV step count;Phase V step count;Phase VI step count;Phase VII step count;Scheduler picks;Cycle ratio;Move ratio;Jain index;Longest wait";
+
+    private BatchSummary() {}
+
+    // The whole summary at once, with the runs numbered in list order
+    public static String summarizeStats(List<SimulationStatistics> stats) {
+        if (stats == null || stats.isEmpty()) {
+            return "The list is empty.";
+        }
+
+        StringBuilder summary = new StringBuilder();
+        summary.append(HEADER).append('\n');
+        for (int idx = 0; idx < stats.size(); idx++) {
+            appendRow(summary, idx, stats.get(idx));
+        }
+        summary.append('\n');
+
+        return summary.toString();
+    }
+
+    // One line of the summary, ending in a newline
+    public static void appendRow(StringBuilder summary, int run, SimulationStatistics elem) {
+        int stepCount = elem.getStepCounts()
+            .stream()
+            .mapToInt(Integer::intValue)
+            .sum();
+
+        summary.append(run);
+        summary.append(';').append(elem.getRobotCount());
+
+        summary.append(';').append(elem.getDuration());
+
+        summary.append(';').append(stepCount);
+        summary.append(';').append(String.format("%.2f", (double)stepCount/elem.getRobotCount()));
+        summary.append(';').append(elem.getMaxStepCount());
+
+        summary.append(';').append(elem.getStartWidth());
+        summary.append(';').append(elem.getStartHeight());
+        summary.append(';').append(elem.getMaxWidth());
+        summary.append(';').append(elem.getMaxHeight());
+
+        summary.append(';').append(elem.getStepCountForPhase(1));
+        summary.append(';').append(elem.getStepCountForPhase(2));
+        summary.append(';').append(elem.getStepCountForPhase(3));
+        summary.append(';').append(elem.getStepCountForPhase(4));
+        summary.append(';').append(elem.getStepCountForPhase(5));
+        summary.append(';').append(elem.getStepCountForPhase(6));
+        summary.append(';').append(elem.getStepCountForPhase(7));
+
+        SchedulerMetrics metrics = elem.getSchedulerMetrics();
+        summary.append(';').append(metrics.getPicks());
+        summary.append(';').append(String.format("%.3f", metrics.getCycleRatio()));
+        summary.append(';').append(String.format("%.3f", metrics.getMoveRatio()));
+        summary.append(';').append(String.format("%.3f", metrics.getJainIndex()));
+        summary.append(';').append(metrics.getLongestWait());
+
+        summary.append('\n');
+    }
+
+    // The percentiles of a whole batch, as one row under the header of StatisticsAggregate
+    public static String summarizeAggregate(StatisticsAggregate aggregate) {
+        StringBuilder summary = new StringBuilder(StatisticsAggregate.header()).append('\n');
+        aggregate.appendSummary(summary);
+        return summary.append('\n').toString();
+    }
+
+    // Where the aggregated summary of a batch goes by default: runs.csv gets runs-summary.csv
+    public static Path summaryFileFor(Path output) {
+        String name = output.getFileName().toString();
+        String base = name.toLowerCase().endsWith(".csv") ? name.substring(0, name.length() - 4) : name;
+        return output.resolveSibling(base + "-summary.csv");
+    }
+}
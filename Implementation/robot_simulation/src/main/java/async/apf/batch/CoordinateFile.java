@@ -0,0 +1,38 @@
+package async.apf.batch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import async.apf.model.Coordinate;
+
+/**
+ * Reads the coordinate files of the Resources folder: a single line of
+ * "x,y" pairs separated by semicolons, the same format the input windows load.
+ */
+public final class CoordinateFile {
+    private CoordinateFile() {}
+
+    public static List<Coordinate> read(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        if (lines.isEmpty() || lines.getFirst().isBlank()) {
+            throw new IOException("No coordinates in " + file + "!");
+        }
+
+        List<Coordinate> coordinates = new ArrayList<>();
+        for (String coordinateString : lines.getFirst().split(";")) {
+            String[] parts = coordinateString.split(",");
+            try {
+                int x = Integer.parseInt(parts[0].trim());
+                int y = Integer.parseInt(parts[1].trim());
+                coordinates.add(new Coordinate(x, y));
+            }
+            catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+                throw new IOException("Invalid coordinate \"" + coordinateString + "\" in " + file + "!");
+            }
+        }
+        return coordinates;
+    }
+}
@@ -0,0 +1,33 @@
+package async.apf.batch;
+
+import java.util.Random;
+
+// Inclusive range of positive integers, written as "min-max" or a single value
+public record IntRange(int min, int max) {
+    public IntRange {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("Invalid range: " + min + "-" + max + "!");
+        }
+    }
+
+    public static IntRange parse(String text) {
+        String[] parts = text.split("-", 2);
+        try {
+            int min = Integer.parseInt(parts[0].trim());
+            int max = parts.length == 2 ? Integer.parseInt(parts[1].trim()) : min;
+            return new IntRange(min, max);
+        }
+        catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid range: " + text + "!");
+        }
+    }
+
+    public int pick(Random rng) {
+        return min + rng.nextInt(max - min + 1);
+    }
+
+    @Override
+    public String toString() {
+        return min == max ? Integer.toString(min) : min + "-" + max;
+    }
+}
@@ -0,0 +1,43 @@
+package async.apf.batch;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import async.apf.model.Coordinate;
+
+public final class PatternGenerator {
+    private PatternGenerator() {}
+
+    // Distinct random coordinates inside the width x height area at the origin
+    public static List<Coordinate> generateCoordinates(Random rng, int count, int width, int height) {
+        Set<Coordinate> coordinates = new HashSet<>();
+
+        // Ensure we do not ask for more unique points than possible
+        if (count > width * height) {
+            throw new IllegalArgumentException("Cannot generate more unique coordinates than the area size.");
+        }
+
+        while (coordinates.size() < count) {
+            int x = rng.nextInt(width);
+            int y = rng.nextInt(height);
+
+            Coordinate point = new Coordinate(x, y);
+            coordinates.add(point);
+        }
+
+        // Convert Set to List and return
+        return new ArrayList<>(coordinates);
+    }
+
+    // Simulations move the coordinates of their initial configuration, every run needs its own
+    public static List<Coordinate> copyCoordinates(List<Coordinate> coordinates) {
+        List<Coordinate> copy = new ArrayList<>(coordinates.size());
+        for (Coordinate coordinate : coordinates) {
+            copy.add(coordinate.copy());
+        }
+        return copy;
+    }
+}
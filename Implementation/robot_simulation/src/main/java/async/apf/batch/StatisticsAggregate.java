@@ -0,0 +1,100 @@
+package async.apf.batch;
+
+import async.apf.model.SimulationStatistics;
+
+/**
+ * Distributions of the statistics of a group of simulations, e.g. a cell of
+ * a sweep, without keeping the simulations. Aggregates of the same group
+ * collected on different workers are merged into one.
+ */
+public final class StatisticsAggregate {
+    // Every metric gets its own histogram, in this order
+    private static final String[] METRICS = {
+        "Total steps",
+        "Highest individual step count",
+        "Phase I step count",
+        "Phase II step count",
+        "Phase III step count",
+        "Phase IV step count",
+        "Phase V step count",
+        "Phase VI step count",
+        "Phase VII step count",
+        "Time (ms)",
+        "Max width",
+        "Max height"
+    };
+    private static final double[] PERCENTILES = { 50, 90, 99 };
+
+    // Column of every metric in a row of BatchSummary, which starts with the run
+    private static final int[] SUMMARY_COLUMNS = { 3, 5, 10, 11, 12, 13, 14, 15, 16, 2, 8, 9 };
+
+    private final LogHistogram[] histograms = new LogHistogram[METRICS.length];
+
+    public StatisticsAggregate() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LogHistogram();
+        }
+    }
+
+    public void record(SimulationStatistics statistics) {
+        int totalSteps = statistics.getStepCounts()
+            .stream()
+            .mapToInt(Integer::intValue)
+            .sum();
+        histograms[0].record(totalSteps);
+        histograms[1].record(statistics.getMaxStepCount());
+        for (int phase = 1; phase <= 7; phase++) {
+            histograms[1 + phase].record(statistics.getStepCountForPhase(phase));
+        }
+        histograms[9].record(statistics.getDuration());
+        histograms[10].record(statistics.getMaxWidth());
+        histograms[11].record(statistics.getMaxHeight());
+    }
+
+    /**
+     * Records a run from its row in a BatchSummary, for runs that were only
+     * kept on the disk.
+     * @param offset column where the BatchSummary part of the row starts
+     */
+    public void recordRow(String[] columns, int offset) {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i].record(Long.parseLong(columns[offset + SUMMARY_COLUMNS[i]].trim()));
+        }
+    }
+
+    public void merge(StatisticsAggregate other) {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i].merge(other.histograms[i]);
+        }
+    }
+
+    public long getCount() {
+        return histograms[0].getCount();
+    }
+
+    // Columns written by appendSummary()
+    public static String header() {
+        StringBuilder header = new StringBuilder("Runs");
+        for (String metric : METRICS) {
+            header.append(';').append(metric).append(" mean");
+            header.append(';').append(metric).append(" min");
+            for (double percentile : PERCENTILES) {
+                header.append(';').append(metric).append(" p").append((int) percentile);
+            }
+            header.append(';').append(metric).append(" max");
+        }
+        return header.toString();
+    }
+
+    public void appendSummary(StringBuilder summary) {
+        summary.append(getCount());
+        for (LogHistogram histogram : histograms) {
+            summary.append(';').append(String.format("%.2f", histogram.getMean()));
+            summary.append(';').append(histogram.getMin());
+            for (double percentile : PERCENTILES) {
+                summary.append(';').append(histogram.getValueAtPercentile(percentile));
+            }
+            summary.append(';').append(histogram.getMax());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package async.apf.batch;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import async.apf.model.SimulationStatistics;
+
+/**
+ * Collects a StatisticsAggregate per group of runs on every worker thread,
+ * so workers never wait for each other, and merges them once the batch is
+ * done. Only the histograms are kept, never the runs.
+ */
+public final class StatisticsAggregator {
+    // The aggregates of a worker are only touched by that worker until merge()
+    private final Map<Thread, Map<Integer, StatisticsAggregate>> workers = new ConcurrentHashMap<>();
+
+    public void record(int group, SimulationStatistics statistics) {
+        local(group).record(statistics);
+    }
+
+    // See StatisticsAggregate.recordRow(String[], int)
+    public void recordRow(int group, String[] columns, int offset) {
+        local(group).recordRow(columns, offset);
+    }
+
+    /**
+     * The aggregates of every group, ordered by group. Must only be called
+     * once the workers are done, e.g. after BatchExecutor.forEach returned.
+     */
+    public SortedMap<Integer, StatisticsAggregate> merge() {
+        SortedMap<Integer, StatisticsAggregate> merged = new TreeMap<>();
+        for (Map<Integer, StatisticsAggregate> aggregates : workers.values()) {
+            for (Map.Entry<Integer, StatisticsAggregate> entry : aggregates.entrySet()) {
+                merged.computeIfAbsent(entry.getKey(), group -> new StatisticsAggregate()).merge(entry.getValue());
+            }
+        }
+        return merged;
+    }
+
+    private StatisticsAggregate local(int group) {
+        return workers
+            .computeIfAbsent(Thread.currentThread(), thread -> new HashMap<>())
+            .computeIfAbsent(group, key -> new StatisticsAggregate());
+    }
+}
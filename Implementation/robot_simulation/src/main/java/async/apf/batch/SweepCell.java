@@ -0,0 +1,4 @@
+package async.apf.batch;
+
+// One point of a sweep's grid, see SweepSettings.cell(int)
+public record SweepCell(int index, int robotCount, Area initialArea, Area targetArea, long seed) {}
@@ -0,0 +1,110 @@
+package async.apf.batch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * Checkpoints of a sweep, one line per finished cell of the grid. The first
+ * line describes the sweep, so a journal can not be resumed with different
+ * parameters. Every cell line holds the length the results file had once
+ * the rows of the cell were on the disk, rows written after the last
+ * checkpoint belong to unfinished cells and are cut off on resume. A line
+ * only counts once its newline is on the disk, a line cut off by a crash is
+ * dropped and its cell is run again.
+ * <pre>
+ * sweep robots=10,20 initial-areas=10x10 ...
+ * cell 3 1520
+ * cell 0 2894
+ * </pre>
+ */
+public final class SweepJournal implements AutoCloseable {
+    private static final String SWEEP_PREFIX = "sweep ";
+    private static final String CELL_PREFIX = "cell ";
+
+    private final FileChannel channel;
+    private final BitSet finishedCells = new BitSet();
+    private long resultLength = 0;
+
+    private SweepJournal(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Opens the journal of the described sweep, reading the cells it has
+     * finished if the journal already exists.
+     * @throws IOException if the journal belongs to another sweep
+     */
+    public static SweepJournal open(Path file, String description) throws IOException {
+        String content = Files.exists(file) ? Files.readString(file, StandardCharsets.UTF_8) : "";
+        // Only lines that made it to the disk with their newline count, a crash may cut off the last one
+        int complete = content.lastIndexOf('\n') + 1;
+        String[] lines = complete > 0 ? content.substring(0, complete).split("\n") : new String[0];
+        boolean exists = lines.length > 0;
+        if (exists && !lines[0].equals(SWEEP_PREFIX + description)) {
+            throw new IOException("The journal " + file + " belongs to another sweep: " + lines[0]);
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        // New lines must not continue a cut off one
+        channel.truncate(content.substring(0, complete).getBytes(StandardCharsets.UTF_8).length);
+        channel.position(channel.size());
+        SweepJournal journal = new SweepJournal(channel);
+        if (!exists) {
+            journal.append(SWEEP_PREFIX + description);
+        }
+        for (int i = 1; i < lines.length; i++) {
+            String[] parts = lines[i].split(" ");
+            if (parts.length != 3 || !lines[i].startsWith(CELL_PREFIX)) {
+                journal.close();
+                throw new IOException("Invalid line in the journal " + file + ": " + lines[i]);
+            }
+            try {
+                int cell = Integer.parseInt(parts[1]);
+                long length = Long.parseLong(parts[2]);
+                journal.finishedCells.set(cell);
+                journal.resultLength = Math.max(journal.resultLength, length);
+            }
+            catch (NumberFormatException ex) {
+                journal.close();
+                throw new IOException("Invalid line in the journal " + file + ": " + lines[i]);
+            }
+        }
+        return journal;
+    }
+
+    // Cells that do not have to be run again
+    public BitSet getFinishedCells() {
+        return (BitSet) finishedCells.clone();
+    }
+
+    // Length of the results file at the last checkpoint, 0 if no cell has finished yet
+    public long getResultLength() {
+        return resultLength;
+    }
+
+    // Must be called once the rows of the cell are on the disk
+    public synchronized void recordCell(int cell, long resultLength) throws IOException {
+        append(CELL_PREFIX + cell + " " + resultLength);
+        this.finishedCells.set(cell);
+        this.resultLength = resultLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void append(String line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((line + '\n').getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+}
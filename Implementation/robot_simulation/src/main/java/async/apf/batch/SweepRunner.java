@@ -0,0 +1,277 @@
+package async.apf.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import async.apf.model.AsyncScheduler;
+import async.apf.model.Coordinate;
+import async.apf.model.DiscreteEventSimulation;
+import async.apf.model.events.EventEmitter;
+import async.apf.model.exceptions.InvalidInputException;
+
+/**
+ * Runs a parameter sweep from the command line: every combination of robot
+ * count, initial area, target area and seed, with a number of simulations
+ * per combination. The patterns of a replicate only depend on the robot
+ * count, the areas and the replicate's number, the seed only drives the
+ * scheduler, so cells that differ in their seed run the same patterns under
+ * different schedules. The rows of a cell are written together once all of its
+ * simulations have finished, then the cell is checkpointed in the journal.
+ * Running the same sweep again resumes it, skipping the finished cells.
+ * <p>
+ * At the end the percentiles of every cell are written to a second file.
+ * They are aggregated on the workers as the simulations finish, a resumed
+ * sweep reads back the rows of the cells it skips.
+ * <p>
+ * Run it from the class path, e.g.
+ * {@code java -cp target/classes async.apf.batch.SweepRunner --robots 5-20:5 --output sweep.csv}
+ */
+public final class SweepRunner {
+    public static final String HEADER = "Cell;Initial area;Target area;Seed;" + BatchSummary.HEADER;
+    // Columns in front of the BatchSummary part of a row
+    private static final int CELL_COLUMNS = 4;
+
+    // Rows of a cell whose simulations are still running
+    private static final class CellRows {
+        private final String[] rows;
+        private final AtomicInteger remaining;
+
+        CellRows(int replicates) {
+            this.rows = new String[replicates];
+            this.remaining = new AtomicInteger(replicates);
+        }
+    }
+
+    private final SweepSettings settings;
+    private final Map<Integer, CellRows> runningCells = new ConcurrentHashMap<>();
+    private final AtomicInteger finishedCells = new AtomicInteger();
+    private final AtomicLong hashCollisions = new AtomicLong();
+    private final StatisticsAggregator aggregator = new StatisticsAggregator();
+
+    // Set up by run()
+    private int cellCount;
+    private BatchResultSink sink;
+    private SweepJournal journal;
+
+    public SweepRunner(SweepSettings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) {
+        SweepSettings settings;
+        try {
+            settings = SweepSettings.parse(args);
+        }
+        catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.print(SweepSettings.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        try {
+            new SweepRunner(settings).run();
+        }
+        catch (IOException ex) {
+            System.err.println(ex.getMessage());
+            System.exit(1);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            System.exit(1);
+        }
+    }
+
+    public void run() throws IOException, InterruptedException {
+        this.cellCount = settings.cellCount();
+        try (SweepJournal sweepJournal = SweepJournal.open(settings.journal(), settings.describe())) {
+            BitSet finished = sweepJournal.getFinishedCells();
+            boolean resuming = !finished.isEmpty();
+            if (resuming) {
+                truncateResults(sweepJournal.getResultLength());
+                aggregateResults();
+            }
+
+            int[] pendingCells = new int[cellCount - finished.cardinality()];
+            int pending = 0;
+            for (int cell = finished.nextClearBit(0); cell < cellCount; cell = finished.nextClearBit(cell + 1)) {
+                pendingCells[pending++] = cell;
+            }
+            finishedCells.set(cellCount - pendingCells.length);
+            System.err.println((resuming ? "Resuming" : "Running") + " a sweep of " + cellCount + " cells, "
+                + pendingCells.length + " left, " + settings.replicates() + " simulations each, on "
+                + settings.parallelism() + " threads");
+
+            int replicates = settings.replicates();
+            try (BatchResultSink resultSink = new BatchResultSink(settings.output(), HEADER, resuming);
+                 BatchExecutor executor = new BatchExecutor(settings.parallelism())) {
+                this.sink = resultSink;
+                this.journal = sweepJournal;
+                executor.forEach(pendingCells.length * replicates,
+                    index -> runReplicate(settings.cell(pendingCells[index / replicates]), index % replicates));
+            }
+            catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            finally {
+                this.sink = null;
+                this.journal = null;
+            }
+        }
+        writeSummary();
+        System.err.println("Sweep finished, written to " + settings.output() + " and " + settings.summary());
+        if (settings.exactRepetitionCheck()) {
+            System.err.println(hashCollisions.get() + " hash collisions were told apart by the exact repetition check");
+        }
+    }
+
+    // Cuts off the rows of the cells that were not finished
+    private void truncateResults(long length) throws IOException {
+        if (!Files.exists(settings.output()) || Files.size(settings.output()) < length) {
+            throw new IOException("The results file " + settings.output() + " is shorter than its journal says, it can't be resumed!");
+        }
+        try (FileChannel channel = FileChannel.open(settings.output(), StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        }
+    }
+
+    // Rows of the finished cells are read back from the disk, one at a time
+    private void aggregateResults() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(settings.output(), StandardCharsets.UTF_8)) {
+            // The header
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                String[] columns = line.split(";");
+                try {
+                    aggregator.recordRow(Integer.parseInt(columns[0]), columns, CELL_COLUMNS);
+                }
+                catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+                    throw new IOException("Invalid row in " + settings.output() + ": " + line);
+                }
+            }
+        }
+    }
+
+    private void writeSummary() throws IOException {
+        StringBuilder summary = new StringBuilder("Cell;Robot count;Initial area;Target area;Seed;")
+            .append(StatisticsAggregate.header())
+            .append('\n');
+        for (Map.Entry<Integer, StatisticsAggregate> entry : aggregator.merge().entrySet()) {
+            SweepCell cell = settings.cell(entry.getKey());
+            summary.append(cell.index())
+                .append(';').append(cell.robotCount())
+                .append(';').append(cell.initialArea())
+                .append(';').append(cell.targetArea())
+                .append(';').append(cell.seed())
+                .append(';');
+            entry.getValue().appendSummary(summary);
+            summary.append('\n');
+        }
+        Files.writeString(settings.summary(), summary);
+    }
+
+    private void runReplicate(SweepCell cell, int replicate) {
+        Random rng = new Random(replicateSeed(patternSeed(cell), replicate));
+        List<Coordinate> initialConfiguration = PatternGenerator.generateCoordinates(
+            rng, cell.robotCount(), cell.initialArea().width(), cell.initialArea().height());
+        List<Coordinate> targetPattern = PatternGenerator.generateCoordinates(
+            rng, cell.robotCount(), cell.targetArea().width(), cell.targetArea().height());
+
+        String row = null;
+        try {
+            AsyncScheduler scheduler = AsyncScheduler.create(settings.schedulingPolicy(), cell.robotCount(), replicateSeed(cell.seed(), replicate));
+            DiscreteEventSimulation simulation = new DiscreteEventSimulation(new EventEmitter(), initialConfiguration, targetPattern, scheduler);
+            simulation.setExactRepetitionCheck(settings.exactRepetitionCheck());
+            simulation.run();
+            long collisions = simulation.getHashCollisions();
+            if (collisions > 0) {
+                hashCollisions.addAndGet(collisions);
+                System.err.println("Simulation " + replicate + " of cell " + cell.index() + " had " + collisions + " hash collisions");
+            }
+            if (simulation.isComplete()) {
+                StringBuilder builder = new StringBuilder();
+                builder.append(cell.index())
+                    .append(';').append(cell.initialArea())
+                    .append(';').append(cell.targetArea())
+                    .append(';').append(cell.seed())
+                    .append(';');
+                BatchSummary.appendRow(builder, replicate, simulation.getStatistics());
+                row = builder.toString();
+                aggregator.record(cell.index(), simulation.getStatistics());
+            }
+        }
+        catch (InvalidInputException ex) {
+            System.err.println("Simulation " + replicate + " of cell " + cell.index() + " has invalid input!");
+        }
+        catch (RuntimeException ex) {
+            // Counts as not completed, so the cell still finishes and gets checkpointed
+            row = null;
+            System.err.println("Simulation " + replicate + " of cell " + cell.index()
+                + " (pattern seed " + replicateSeed(patternSeed(cell), replicate)
+                + ", scheduler seed " + replicateSeed(cell.seed(), replicate) + ") crashed: " + ex);
+        }
+
+        CellRows cellRows = runningCells.computeIfAbsent(cell.index(), index -> new CellRows(settings.replicates()));
+        cellRows.rows[replicate] = row;
+        // The last decrement sees the rows of every other replicate
+        if (cellRows.remaining.decrementAndGet() == 0) {
+            runningCells.remove(cell.index());
+            finishCell(cell, cellRows.rows);
+        }
+    }
+
+    private void finishCell(SweepCell cell, String[] rows) {
+        StringBuilder builder = new StringBuilder();
+        int completed = 0;
+        for (String row : rows) {
+            if (row == null) continue;
+            builder.append(row);
+            completed++;
+        }
+
+        // Rows and checkpoints go out in the same order, so a checkpoint never covers rows of an unfinished cell
+        synchronized (this) {
+            try {
+                sink.write(builder);
+                journal.recordCell(cell.index(), sink.sync());
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        System.err.println("Cell " + cell.index() + " finished, " + completed + " / " + rows.length
+            + " simulations completed, " + finishedCells.incrementAndGet() + " / " + cellCount + " cells done");
+    }
+
+    // Everything but the seed of the cell
+    private static long patternSeed(SweepCell cell) {
+        long seed = cell.robotCount();
+        seed = seed * 31 + cell.initialArea().width();
+        seed = seed * 31 + cell.initialArea().height();
+        seed = seed * 31 + cell.targetArea().width();
+        seed = seed * 31 + cell.targetArea().height();
+        return seed;
+    }
+
+    // Spreads the seeds of neighbouring replicates, which Random would start off with similar numbers (SplitMix64)
+    static long replicateSeed(long seed, int replicate) {
+        long z = seed + (replicate + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
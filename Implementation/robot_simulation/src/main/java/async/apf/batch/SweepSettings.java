@@ -0,0 +1,218 @@
+package async.apf.batch;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import async.apf.model.enums.SchedulingPolicy;
+
+/**
+ * Parameters of a parameter sweep: the grid of robot counts, initial areas,
+ * target areas and seeds, and the number of simulations run in every cell
+ * of the grid.
+ */
+public record SweepSettings(
+    List<Integer> robotCounts,
+    List<Area> initialAreas,
+    List<Area> targetAreas,
+    List<Long> seeds,
+    int replicates,
+    int parallelism,
+    SchedulingPolicy schedulingPolicy,
+    boolean exactRepetitionCheck,
+    Path output,
+    Path summary,
+    Path journal
+) {
+    public static final String USAGE = """
+        Usage: SweepRunner [options] --output <file>
+          --robots <list>               robot counts (default 10)
+          --initial-areas <list>        sizes of the random initial areas (default 10x10)
+          --target-areas <list>         sizes of the random target areas (default 10x10)
+          --seeds <list>                seeds of the schedulers (default 1), the patterns
+                                        only depend on the other axes and the replicate
+          --replicates <n>              simulations per cell of the grid (default 10)
+          --parallelism <n>             simulations run at once (default: available processors)
+          --scheduler <policy>          one of UNIFORM_RANDOM, ROUND_ROBIN, RANDOM_PERMUTATION,
+                                        K_BOUNDED_FAIR, PREFER_MOVING (default UNIFORM_RANDOM)
+          --exact-repetition-check      confirm repeated configurations against a log on disk
+                                        instead of trusting their 64-bit hash
+          --output <file>               CSV of the runs to write
+          --summary <file>              CSV of the percentiles of every cell
+                                        (default: the output with -summary before .csv)
+          --journal <file>              checkpoint journal (default: the output with .journal appended)
+
+        Lists are comma separated values and ranges, e.g. 5,10,20-40:10 is 5, 10, 20, 30, 40.
+        Areas are WIDTHxHEIGHT, both sides may be ranges: 10-20:10x10,5x5 is 10x10, 20x10 and 5x5.
+        A sweep whose journal exists resumes after the last finished cell.
+        """;
+
+    // A value, or a range with an optional step
+    private static final Pattern LIST_ITEM = Pattern.compile("(-?\\d+)(?:-(-?\\d+)(?::(\\d+))?)?");
+
+    public SweepSettings {
+        robotCounts = List.copyOf(robotCounts);
+        initialAreas = List.copyOf(initialAreas);
+        targetAreas = List.copyOf(targetAreas);
+        seeds = List.copyOf(seeds);
+        if ((long) robotCounts.size() * initialAreas.size() * targetAreas.size() * seeds.size() * replicates > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The sweep has too many simulations!");
+        }
+        int maxRobots = robotCounts.stream().mapToInt(Integer::intValue).max().orElse(0);
+        for (Area area : initialAreas) checkFits(maxRobots, area);
+        for (Area area : targetAreas) checkFits(maxRobots, area);
+    }
+
+    public static SweepSettings parse(String[] args) {
+        List<Integer> robotCounts = List.of(10);
+        List<Area> initialAreas = List.of(new Area(10, 10));
+        List<Area> targetAreas = List.of(new Area(10, 10));
+        List<Long> seeds = List.of(1L);
+        int replicates = 10;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        SchedulingPolicy schedulingPolicy = SchedulingPolicy.UNIFORM_RANDOM;
+        boolean exactRepetitionCheck = false;
+        Path output = null;
+        Path summary = null;
+        Path journal = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (option.equals("--exact-repetition-check")) {
+                exactRepetitionCheck = true;
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for " + option + "!");
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--robots"        -> robotCounts = parsePositiveList(option, value);
+                case "--initial-areas" -> initialAreas = parseAreas(option, value);
+                case "--target-areas"  -> targetAreas = parseAreas(option, value);
+                case "--seeds"         -> seeds = parseList(option, value);
+                case "--replicates"    -> replicates = BatchSettings.parsePositive(option, value);
+                case "--parallelism"   -> parallelism = BatchSettings.parsePositive(option, value);
+                case "--scheduler"     -> schedulingPolicy = BatchSettings.parsePolicy(value);
+                case "--output"        -> output = Path.of(value);
+                case "--summary"       -> summary = Path.of(value);
+                case "--journal"       -> journal = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + option + "!");
+            }
+        }
+        if (output == null) {
+            throw new IllegalArgumentException("The --output option is required!");
+        }
+        if (summary == null) {
+            summary = BatchSummary.summaryFileFor(output);
+        }
+        if (journal == null) {
+            journal = Path.of(output + ".journal");
+        }
+
+        return new SweepSettings(robotCounts, initialAreas, targetAreas, seeds, replicates,
+            parallelism, schedulingPolicy, exactRepetitionCheck, output, summary, journal);
+    }
+
+    public int cellCount() {
+        return robotCounts.size() * initialAreas.size() * targetAreas.size() * seeds.size();
+    }
+
+    // Cells are numbered with the seed changing fastest and the robot count slowest
+    public SweepCell cell(int index) {
+        int rest = index;
+        long seed = seeds.get(rest % seeds.size());
+        rest /= seeds.size();
+        Area targetArea = targetAreas.get(rest % targetAreas.size());
+        rest /= targetAreas.size();
+        Area initialArea = initialAreas.get(rest % initialAreas.size());
+        rest /= initialAreas.size();
+        return new SweepCell(index, robotCounts.get(rest), initialArea, targetArea, seed);
+    }
+
+    /**
+     * Everything that decides the results of the sweep, so a journal is only
+     * resumed by the sweep that wrote it. Parallelism and file names do not
+     * change the results.
+     */
+    public String describe() {
+        return "robots=" + join(robotCounts)
+            + " initial-areas=" + join(initialAreas)
+            + " target-areas=" + join(targetAreas)
+            + " seeds=" + join(seeds)
+            + " replicates=" + replicates
+            + " scheduler=" + schedulingPolicy
+            // Left out when off, so journals written before the option existed still resume
+            + (exactRepetitionCheck ? " exact-repetition-check" : "");
+    }
+
+    private static String join(List<?> values) {
+        StringBuilder builder = new StringBuilder();
+        for (Object value : values) {
+            if (builder.length() > 0) builder.append(',');
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+    private static void checkFits(int robotCount, Area area) {
+        if (area.cellCount() < robotCount) {
+            throw new IllegalArgumentException(robotCount + " robots can't fit a " + area + " area!");
+        }
+    }
+
+    private static List<Long> parseList(String option, String text) {
+        List<Long> values = new ArrayList<>();
+        for (String item : text.split(",")) {
+            Matcher matcher = LIST_ITEM.matcher(item.trim());
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException(option + " has an invalid value: " + item + "!");
+            }
+            try {
+                long first = Long.parseLong(matcher.group(1));
+                long last = matcher.group(2) != null ? Long.parseLong(matcher.group(2)) : first;
+                long step = matcher.group(3) != null ? Long.parseLong(matcher.group(3)) : 1;
+                if (last < first || step < 1) {
+                    throw new IllegalArgumentException(option + " has an invalid range: " + item + "!");
+                }
+                // Stops when the value overflows too
+                for (long value = first; value >= first && value <= last; value += step) {
+                    values.add(value);
+                }
+            }
+            catch (NumberFormatException ex) {
+                throw new IllegalArgumentException(option + " has an invalid value: " + item + "!");
+            }
+        }
+        return values;
+    }
+
+    private static List<Integer> parsePositiveList(String option, String text) {
+        List<Integer> values = new ArrayList<>();
+        for (long value : parseList(option, text)) {
+            if (value < 1 || value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(option + " must only have positive integers, got " + value + "!");
+            }
+            values.add((int) value);
+        }
+        return values;
+    }
+
+    private static List<Area> parseAreas(String option, String text) {
+        List<Area> areas = new ArrayList<>();
+        for (String item : text.split(",")) {
+            String[] sides = item.split("x");
+            if (sides.length != 2) {
+                throw new IllegalArgumentException(option + " must be WIDTHxHEIGHT, got " + item + "!");
+            }
+            for (int width : parsePositiveList(option, sides[0])) {
+                for (int height : parsePositiveList(option, sides[1])) {
+                    areas.add(new Area(width, height));
+                }
+            }
+        }
+        return areas;
+    }
+}
@@ -0,0 +1,309 @@
+package async.apf.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import async.apf.model.enums.SimulationEventType;
+import async.apf.model.events.EventEmitter;
+import async.apf.model.events.SimulationEvent;
+import async.apf.model.exceptions.InvalidInputException;
+
+/**
+ * State and bookkeeping shared by the simulation engines: the configuration,
+ * the target pattern, the robots, statistics and the failure checks that run
+ * after every move. Subclasses decide how robots get activated.
+ */
+public abstract class AbstractSimulation {
+    protected final AsyncScheduler scheduler;
+    protected final EventEmitter globalEventEmitter;
+
+    protected final List<Coordinate> currentConfiguration;
+    // The same positions in primitive form, orientation and checks work on these
+    protected final PackedConfiguration packedConfiguration;
+    protected final List<Coordinate> targetPattern;
+    // Computed once, the target does not change during a simulation
+    protected final ConfigurationOrientation targetOrientation;
+
+    // Filled by the engines, which decide how robots run their cycles
+    protected final List<Robot> robots = new ArrayList<>();
+
+    protected boolean hasBegun = false;
+    protected volatile boolean isPaused = false;
+    protected volatile boolean completed = false;
+    protected volatile boolean failed = false;
+    protected volatile boolean stopped = false;
+
+    protected int delay;
+
+    protected final SimulationStatistics statistics;
+
+    // Incremented on every move. Robots that LOOK at the same version share one orientation
+    private long configurationVersion = 0;
+    private long orientedVersion = -1;
+    private ConfigurationOrientation orientedConfiguration;
+    private SER orientedSER;
+
+    // Bounding rectangle of the configuration, updated on every move
+    private final SERTracker serTracker;
+    // Canonical orientation of the configuration, updated on every move
+    private final OrientationTracker orientationTracker;
+    // Occupied cells as packed coordinates, updated on every move
+    private final LongOpenHashSet occupiedCells;
+    // Hashes of every configuration reached by a move
+    private RepetitionDetector repetitionDetector;
+
+    // Guards the configuration and statistics, robots report in from several threads
+    protected final Object stateLock = new Object();
+
+    protected AbstractSimulation(EventEmitter globalEventEmitter, List<Coordinate> startingConfiguration, List<Coordinate> targetPattern, AsyncScheduler scheduler) throws InvalidInputException {
+        this.globalEventEmitter = globalEventEmitter;
+        this.currentConfiguration = startingConfiguration;
+        this.packedConfiguration = PackedConfiguration.of(startingConfiguration);
+        this.targetPattern = targetPattern;
+
+        int robotCount = startingConfiguration.size();
+
+        if (robotCount != targetPattern.size()) {
+            throw new InvalidInputException();
+        }
+
+        this.scheduler = scheduler != null
+            ? scheduler
+            : AsyncScheduler.create(robotCount);
+        if (this.scheduler.getRobotCount() != robotCount) {
+            throw new IllegalArgumentException("Scheduler was created for " + this.scheduler.getRobotCount() + " robots instead of " + robotCount + "!");
+        }
+        this.targetOrientation = TargetPatternCache.orient(targetPattern);
+        this.serTracker = new SERTracker(startingConfiguration);
+        this.orientationTracker = new OrientationTracker(this.packedConfiguration);
+        this.occupiedCells = new LongOpenHashSet(robotCount);
+        for (Coordinate coordinate : startingConfiguration) {
+            if (!this.occupiedCells.add(coordinate.pack())) {
+                throw new InvalidInputException();
+            }
+        }
+        this.repetitionDetector = new RepetitionDetector(startingConfiguration, false);
+        List<SER> SERs = getSER();
+        this.statistics = new SimulationStatistics(
+            robotCount,
+            Math.max(SERs.get(0).getWidth(),  SERs.get(1).getWidth() ),
+            Math.max(SERs.get(0).getHeight(), SERs.get(1).getHeight())
+        );
+        this.statistics.setSchedulerMetrics(this.scheduler.getMetrics());
+    }
+
+    private List<SER> getSER() {
+        int minSX = Integer.MAX_VALUE;
+        int minSY = Integer.MAX_VALUE;
+        int maxSX = Integer.MIN_VALUE;
+        int maxSY = Integer.MIN_VALUE;
+        int minTX = Integer.MAX_VALUE;
+        int minTY = Integer.MAX_VALUE;
+        int maxTX = Integer.MIN_VALUE;
+        int maxTY = Integer.MIN_VALUE;
+        // Iterate over the points to find the min and max x, y values
+        for (int i = 0; i < this.currentConfiguration.size(); i++) {
+            int sx = currentConfiguration.get(i).getX();
+            int sy = currentConfiguration.get(i).getY();
+            minSX = Math.min(minSX, sx);
+            minSY = Math.min(minSY, sy);
+            maxSX = Math.max(maxSX, sx);
+            maxSY = Math.max(maxSY, sy);
+            int tx = targetPattern.get(i).getX();
+            int ty = targetPattern.get(i).getY();
+            minTX = Math.min(minTX, tx);
+            minTY = Math.min(minTY, ty);
+            maxTX = Math.max(maxTX, tx);
+            maxTY = Math.max(maxTY, ty);
+        }
+
+        List<SER> result = new ArrayList<>();
+        result.add(new SER(minSX, minSY, maxSX, maxSY));
+        result.add(new SER(minTX, minTY, maxTX, maxTY));
+        return result;
+    }
+
+    public abstract void begin();
+
+    public void setDelay(int delay) {
+        this.delay = delay;
+    }
+
+    public synchronized void resume() {
+        this.isPaused = false;
+        this.notify(); // Notify the thread to resume
+    }
+
+    public void pause() {
+        this.isPaused = true;
+    }
+
+    public boolean hasBegun() {
+        return hasBegun;
+    }
+
+    public boolean isRunning() {
+        return hasBegun && !isPaused;
+    }
+
+    public boolean isPaused() {
+        return hasBegun && isPaused;
+    }
+
+    /**
+     * Confirms repeated configuration hashes against a log of every visited
+     * configuration on disk, instead of trusting the 64-bit hash alone.
+     * Has to be set before the simulation begins.
+     */
+    public void setExactRepetitionCheck(boolean exact) {
+        if (this.hasBegun) {
+            throw new IllegalStateException("The repetition check cannot be changed once the simulation has begun!");
+        }
+        if (exact == this.repetitionDetector.isExact()) return;
+
+        this.repetitionDetector.close();
+        this.repetitionDetector = new RepetitionDetector(this.currentConfiguration, exact);
+    }
+
+    /**
+     * Repeated hashes the exact repetition check found to be different
+     * configurations, each of which would have failed the simulation without
+     * it. Always 0 when the check is off.
+     */
+    public long getHashCollisions() {
+        synchronized (stateLock) {
+            return repetitionDetector.getHashCollisions();
+        }
+    }
+
+    public SimulationStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * The current SER of the configuration. The tracker is updated in place,
+     * read it while the simulation is paused or finished for a stable value.
+     */
+    public SERTracker getCurrentSER() {
+        return serTracker;
+    }
+
+    public AsyncScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public boolean isComplete() {
+        return completed;
+    }
+
+    public boolean hasFailed() {
+        return failed;
+    }
+
+    /**
+     * Stops the simulation without an outcome and releases its threads.
+     * A stopped simulation cannot be started again.
+     */
+    public void shutdown() {
+        this.stopped = true;
+        resume();
+    }
+
+    // Blocks the calling (simulation) thread while the simulation is paused
+    protected void awaitResume() {
+        synchronized (this) {
+            if (this.isPaused) {
+                try {
+                    this.wait(); // Wait until notified
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    protected void markStarted() {
+        this.hasBegun = true;
+        this.isPaused = false;
+        this.completed = false;
+        globalEventEmitter.emitEvent(new SimulationEvent(SimulationEventType.SIMULATION_START));
+        this.statistics.setStartTime(Instant.now());
+    }
+
+    protected void emitOutcome() {
+        synchronized (stateLock) {
+            repetitionDetector.close();
+        }
+        if (completed)
+            globalEventEmitter.emitEvent(new SimulationEvent(SimulationEventType.SIMULATION_END));
+        if (failed)
+            globalEventEmitter.emitEvent(new SimulationEvent(SimulationEventType.SIMULATION_FAIL));
+    }
+
+    protected void fail() {
+        this.failed = true;
+    }
+
+    protected void endSimulation() {
+        this.completed = true;
+        this.statistics.setEndTime(Instant.now());
+    }
+
+    // Only the moved robot can have caused a collision, so only its destination is checked
+    private void checkForCollision(int fromX, int fromY, Coordinate destination) {
+        occupiedCells.remove(Coordinate.pack(fromX, fromY));
+        if (!occupiedCells.add(destination.pack())) {
+            System.err.println("Collision at " + destination.toString() + "!");
+            fail();
+        }
+    }
+
+    private void checkForRepetition(int fromX, int fromY, Coordinate destination) {
+        if (repetitionDetector.recordMove(fromX, fromY, destination.getX(), destination.getY(), packedConfiguration)) {
+            fail();
+        }
+    }
+
+    protected void handleLookEvent(int index, int phase, int x, int y, Robot robot) {
+        emitRobotEvent(index, SimulationEventType.ROBOT_LOOKING, phase, x, y);
+        RobotOrientation snapshot;
+        synchronized (stateLock) {
+            statistics.incrementCycleCounter(index);
+            if (orientedVersion != configurationVersion) {
+                orientedConfiguration = orientationTracker.getOrientation();
+                orientedSER = serTracker.toSER();
+                orientedVersion = configurationVersion;
+            }
+            snapshot = OrientationHelper.orientRobot(orientedConfiguration, orientedSER, currentConfiguration.get(index));
+        }
+        // The snapshot never changes once taken, so no lock is held while the robot computes
+        robot.supplyConfigurations(snapshot, this.targetOrientation);
+    }
+
+    protected void handleMoveEvent(int index, int phase, int x, int y, int deltaX, int deltaY) {
+        synchronized (stateLock) {
+            Coordinate robotLocation = currentConfiguration.get(index);
+            int fromX = robotLocation.getX();
+            int fromY = robotLocation.getY();
+            robotLocation.moveBy(deltaX, deltaY);
+            packedConfiguration.moveBy(index, deltaX, deltaY);
+            serTracker.move(fromX, fromY, fromX + deltaX, fromY + deltaY);
+            orientationTracker.move(fromX, fromY, fromX + deltaX, fromY + deltaY, serTracker);
+            configurationVersion++;
+            statistics.incrementStepsForPhase(index, phase);
+            statistics.trackSERSize(serTracker.getWidth(), serTracker.getHeight());
+            checkForCollision(fromX, fromY, robotLocation);
+            checkForRepetition(fromX, fromY, robotLocation);
+        }
+        emitRobotEvent(index, SimulationEventType.ROBOT_MOVING, phase, x, y, x + deltaX, y + deltaY);
+    }
+
+    protected void emitRobotEvent(int index, SimulationEventType type, int phase, int startX, int startY) {
+        emitRobotEvent(index, type, phase, startX, startY, startX, startY);
+    }
+
+    protected void emitRobotEvent(int index, SimulationEventType type, int phase, int startX, int startY, int endX, int endY) {
+        globalEventEmitter.emitEvent(new SimulationEvent(index, type, phase, startX, startY, endX, endY));
+    }
+}
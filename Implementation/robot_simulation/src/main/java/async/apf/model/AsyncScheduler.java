@@ -2,15 +2,151 @@ package async.apf.model;
 
 import java.util.Random;
 
-public class AsyncScheduler {
-    private final int robotCount;
-    private final Random random = new Random();
+import async.apf.model.enums.SchedulingPolicy;
+import async.apf.model.schedulers.BoundedFairScheduler;
+import async.apf.model.schedulers.MovePreferringScheduler;
+import async.apf.model.schedulers.RandomPermutationScheduler;
+import async.apf.model.schedulers.RoundRobinScheduler;
+import async.apf.model.schedulers.SchedulerMetrics;
+import async.apf.model.schedulers.UniformRandomScheduler;
 
-    public AsyncScheduler(int robotCount) {
+/**
+ * Decides which robot the simulation activates next. Implementations only
+ * have to provide {@link #choose()}; all randomness must come from
+ * {@link #random} so a run can be reproduced from its seed.
+ * <p>
+ * The scheduler also tracks which robots are idle. Engines that run robot
+ * cycles concurrently mark robots busy while their cycle is in flight, and
+ * {@link #choose()} only ever returns an idle robot.
+ */
+public abstract class AsyncScheduler {
+    protected final int robotCount;
+    protected final Random random;
+    private final long seed;
+    private final SchedulerMetrics metrics;
+
+    // Idle robots as a dense set, so picking a random one is O(1)
+    private final int[] idleRobots;
+    private final int[] idlePosition;
+    private int idleCount;
+
+    protected AsyncScheduler(int robotCount, long seed) {
+        if (robotCount < 1) {
+            throw new IllegalArgumentException("Robot count must be at least 1!");
+        }
         this.robotCount = robotCount;
+        this.seed = seed;
+        this.random = new Random(seed);
+        this.metrics = new SchedulerMetrics(robotCount);
+
+        this.idleRobots = new int[robotCount];
+        this.idlePosition = new int[robotCount];
+        for (int i = 0; i < robotCount; i++) {
+            idleRobots[i] = i;
+            idlePosition[i] = i;
+        }
+        this.idleCount = robotCount;
+    }
+
+    public static AsyncScheduler create(SchedulingPolicy policy, int robotCount, long seed) {
+        return switch (policy) {
+            case UNIFORM_RANDOM     -> new UniformRandomScheduler(robotCount, seed);
+            case ROUND_ROBIN        -> new RoundRobinScheduler(robotCount, seed);
+            case RANDOM_PERMUTATION -> new RandomPermutationScheduler(robotCount, seed);
+            case K_BOUNDED_FAIR     -> new BoundedFairScheduler(robotCount, seed, BoundedFairScheduler.DEFAULT_BOUND);
+            case PREFER_MOVING      -> new MovePreferringScheduler(robotCount, seed);
+        };
+    }
+
+    // Unseeded uniform scheduler, the behaviour of the original simulation
+    public static AsyncScheduler create(int robotCount) {
+        return create(SchedulingPolicy.UNIFORM_RANDOM, robotCount, new Random().nextLong());
+    }
+
+    /**
+     * Picks the next robot to activate among the idle ones. Callers that mark
+     * robots busy have to make sure one is idle, see {@link #awaitIdleRobot()}
+     */
+    public synchronized int pickNext() {
+        if (idleCount == 0) {
+            throw new IllegalStateException("There is no idle robot to pick!");
+        }
+        int index = choose();
+        metrics.recordPick(index);
+        return index;
+    }
+
+    // Must return an idle robot, there is always at least one when called
+    protected abstract int choose();
+
+    // Blocks until at least one robot is idle
+    public synchronized void awaitIdleRobot() throws InterruptedException {
+        while (idleCount == 0) {
+            this.wait();
+        }
+    }
+
+    public synchronized boolean hasIdleRobot() {
+        return idleCount > 0;
+    }
+
+    // The robot's cycle is in flight, it must not be picked until it is idle again
+    public synchronized void markBusy(int index) {
+        if (idlePosition[index] < 0) return;
+
+        int last = idleRobots[--idleCount];
+        idleRobots[idlePosition[index]] = last;
+        idlePosition[last] = idlePosition[index];
+        idlePosition[index] = -1;
+    }
+
+    public synchronized void markIdle(int index) {
+        if (idlePosition[index] >= 0) return;
+
+        idlePosition[index] = idleCount;
+        idleRobots[idleCount++] = index;
+        this.notifyAll();
+    }
+
+    protected boolean isIdle(int index) {
+        return idlePosition[index] >= 0;
+    }
+
+    protected int getIdleCount() {
+        return idleCount;
+    }
+
+    // Uniform pick among the idle robots
+    protected int randomIdleRobot() {
+        return idleRobots[random.nextInt(idleCount)];
+    }
+
+    public abstract SchedulingPolicy getPolicy();
+
+    // The picked robot started a new Look-Compute-Move cycle
+    public synchronized void recordCycle(int index) {
+        metrics.recordCycle();
+    }
+
+    // The robot finished COMPUTE and decided whether it moves
+    public synchronized void recordDecision(int index, boolean moves) {
+        if (moves) metrics.recordMove();
+        onDecision(index, moves);
+    }
+
+    // Hook for policies that take the robots' decisions into account
+    protected void onDecision(int index, boolean moves) {
+    }
+
+    public int getRobotCount() {
+        return robotCount;
+    }
+
+    public long getSeed() {
+        return seed;
     }
 
-    public int pickNext() {
-        return random.nextInt(robotCount);
+    public SchedulerMetrics getMetrics() {
+        return metrics;
     }
 }
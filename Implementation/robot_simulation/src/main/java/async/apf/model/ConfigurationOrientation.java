@@ -1,22 +1,41 @@
 package async.apf.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicReference;
 
 import async.apf.model.enums.Cardinal;
 
-public class ConfigurationOrientation {
+public class ConfigurationOrientation implements CoordinateMembership {
     private List<Coordinate> coordinates;
-    private List<Boolean> binaryRepresentation;
+    // The same positions in primitive form, in snake order
+    private PackedConfiguration packedCoordinates;
+    // Bit i is the i-th cell of the snake path, little-endian within each word.
+    // Only created on demand for orientations that were computed sparsely
+    private long[] bits;
+    // Snake indices of the occupied cells, ascending
+    private int[] cellIndices;
+    // Packed coordinates of the cells, built on the first lookup of an orientation without bits.
+    // The reference is shared with the copies, so whichever looks first builds it for all
+    private AtomicReference<LongOpenHashSet> cellSet = new AtomicReference<>();
+    private final int length;
     private Cardinal orientation;
     private boolean xMirrored;
     private int width;
     private int height;
+    private int maxX;
+    private int maxY;
 
-    public ConfigurationOrientation(List<Boolean> binaryRepresentation, Cardinal orientation, boolean xMirrored, int width, int height) {
-        this.binaryRepresentation = binaryRepresentation;
+    public ConfigurationOrientation(long[] bits, Cardinal orientation, boolean xMirrored, int width, int height) {
+        this(bits, cellIndicesOf(bits), orientation, xMirrored, width, height);
+    }
+
+    private ConfigurationOrientation(long[] bits, int[] cellIndices, Cardinal orientation, boolean xMirrored, int width, int height) {
+        this.bits = bits;
+        this.cellIndices = cellIndices;
+        this.length = width * height;
         this.orientation = orientation;
         this.xMirrored = xMirrored;
         this.width = width;
@@ -25,24 +44,160 @@ public class ConfigurationOrientation {
         createCoordinates();
     }
 
+    /**
+     * Creates an orientation from the ascending snake indices of its cells,
+     * without a bitset over the whole SER
+     */
+    public static ConfigurationOrientation fromCellIndices(int[] cellIndices, Cardinal orientation, boolean xMirrored, int width, int height) {
+        return new ConfigurationOrientation(null, cellIndices, orientation, xMirrored, width, height);
+    }
+
+    // Shares the bits and coordinates of the other orientation instead of recomputing them
+    protected ConfigurationOrientation(ConfigurationOrientation other) {
+        this.coordinates = other.coordinates;
+        this.packedCoordinates = other.packedCoordinates;
+        this.bits = other.bits;
+        this.cellIndices = other.cellIndices;
+        this.cellSet = other.cellSet;
+        this.length = other.length;
+        this.orientation = other.orientation;
+        this.xMirrored = other.xMirrored;
+        this.width = other.width;
+        this.height = other.height;
+        this.maxX = other.maxX;
+        this.maxY = other.maxY;
+    }
+
     private void createCoordinates() {
-        this.coordinates = new ArrayList<>();
-        for (int idx = 0; idx < binaryRepresentation.size(); idx++) {
-            if (Boolean.TRUE.equals(binaryRepresentation.get(idx))) {
-                this.coordinates.add(OrientationHelper.indexToCoordinate(idx, width));
+        List<Coordinate> created = new ArrayList<>();
+        this.maxX = Integer.MIN_VALUE;
+        this.maxY = Integer.MIN_VALUE;
+        for (int idx : cellIndices) {
+            Coordinate coordinate = OrientationHelper.indexToCoordinate(idx, width);
+            this.maxX = Math.max(this.maxX, coordinate.getX());
+            this.maxY = Math.max(this.maxY, coordinate.getY());
+            created.add(coordinate);
+        }
+        // Orientations may be shared between robots (see TargetPatternCache)
+        this.coordinates = Collections.unmodifiableList(created);
+        this.packedCoordinates = PackedConfiguration.of(created);
+    }
+
+    private static int[] cellIndicesOf(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        int[] indices = new int[count];
+        int i = 0;
+        for (int idx = nextSetBit(bits, 0); idx >= 0; idx = nextSetBit(bits, idx + 1)) {
+            indices[i++] = idx;
+        }
+        return indices;
+    }
+
+    public static int wordCount(int length) {
+        return (length + 63) >>> 6;
+    }
+
+    public static void setBit(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    // Index of the first set bit at or after from, -1 if there is none
+    public static int nextSetBit(long[] bits, int from) {
+        int wordIndex = from >>> 6;
+        if (wordIndex >= bits.length) return -1;
+
+        long word = bits[wordIndex] & (-1L << from);
+        while (word == 0) {
+            if (++wordIndex == bits.length) return -1;
+            word = bits[wordIndex];
+        }
+        return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * The bitset behind the binary representation. It is shared, not copied,
+     * so callers must not modify it. Sparse orientations create it on the
+     * first call.
+     */
+    public long[] getBits() {
+        if (bits == null) {
+            long[] created = new long[wordCount(length)];
+            for (int idx : cellIndices) {
+                setBit(created, idx);
             }
+            bits = created;
         }
+        return bits;
     }
-    
-    public List<Boolean> getBinaryRepresentation() {
-        return binaryRepresentation;
+
+    /**
+     * The ascending snake indices of the occupied cells. They are shared, not
+     * copied, so callers must not modify them.
+     */
+    public int[] getCellIndices() {
+        return cellIndices;
+    }
+
+    // Number of cells in the binary representation
+    public int getLength() {
+        return length;
+    }
+
+    public boolean isSet(int index) {
+        if (bits == null) {
+            return Arrays.binarySearch(cellIndices, index) >= 0;
+        }
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    // Whether any cell from start to end (both inclusive) of the snake path is set
+    public boolean anySetInRange(int start, int end) {
+        start = Math.max(start, 0);
+        if (start > end) return false;
+        if (bits == null) {
+            int position = Arrays.binarySearch(cellIndices, start);
+            if (position >= 0) return true;
+            int next = -position - 1;
+            return next < cellIndices.length && cellIndices[next] <= end;
+        }
+        int next = nextSetBit(bits, start);
+        return next >= 0 && next <= end;
+    }
+
+    /**
+     * Whether a robot is at the given point of this orientation. Answered
+     * from the bits if there are any, otherwise from a hash set. The set is
+     * built on the first lookup of this orientation or of any copy made from
+     * it, and the others reuse it.
+     */
+    @Override
+    public boolean contains(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return false;
+        if (bits != null) {
+            return isSet(y * width + (y % 2 == 0 ? x : width - x - 1));
+        }
+        LongOpenHashSet cells = cellSet.get();
+        if (cells == null) {
+            cells = new LongOpenHashSet(cellIndices.length);
+            for (int i = 0; i < packedCoordinates.size(); i++) {
+                cells.add(packedCoordinates.getPacked(i));
+            }
+            // A copy that raced us may have built it first, use that one
+            if (!cellSet.compareAndSet(null, cells)) {
+                cells = cellSet.get();
+            }
+        }
+        return cells.contains(Coordinate.pack(x, y));
     }
 
     public String getBinaryString() {
-        StringBuilder binaryString = new StringBuilder();
+        StringBuilder binaryString = new StringBuilder(length);
 
-        for (Boolean bool : binaryRepresentation) {
-            binaryString.append(Boolean.TRUE.equals(bool) ? "1" : "0");
+        for (int idx = 0; idx < length; idx++) {
+            binaryString.append(isSet(idx) ? '1' : '0');
         }
 
         return binaryString.toString();
@@ -63,6 +218,17 @@ public class ConfigurationOrientation {
     public int getHeight() {
         return height;
     }
+
+    // Largest x-coordinate of any robot
+    public int getMaxX() {
+        return maxX;
+    }
+
+    // Largest y-coordinate of any robot
+    public int getMaxY() {
+        return maxY;
+    }
+
     public Coordinate getHeadPosition() {
         return coordinates.getFirst();
     }
@@ -72,22 +238,64 @@ public class ConfigurationOrientation {
     }
 
     public String binaryString() {
-        return binaryRepresentation.stream()
-            .map(b -> Boolean.TRUE.equals(b) ? "1" : "0") 
-            .collect(Collectors.joining(""));
+        return getBinaryString();
     }
 
+    // Reverses every width long segment of the snake path
     public void mirror() {
-        List<Boolean> newBinaryRepresentation = new ArrayList<>();
-        for (int idx = 0; idx < binaryRepresentation.size(); idx++) {
-            int x = width - 1 - (idx % width);
-            int y = idx / width;
-            newBinaryRepresentation.add(binaryRepresentation.get(y * width + x));
+        int[] mirroredIndices = new int[cellIndices.length];
+        for (int i = 0; i < cellIndices.length; i++) {
+            int idx = cellIndices[i];
+            int segmentStart = idx - idx % width;
+            mirroredIndices[i] = segmentStart + width - 1 - (idx - segmentStart);
+        }
+        Arrays.sort(mirroredIndices);
+        cellIndices = mirroredIndices;
+        // The copies keep the set of the cells they were made with
+        cellSet = new AtomicReference<>();
+        if (bits != null) {
+            bits = null;
+            getBits();
         }
-        binaryRepresentation = newBinaryRepresentation;
         createCoordinates();
         xMirrored = !xMirrored;
     }
+
+    /**
+     * Compares the binary strings of two orientations of the same length.
+     * @return positive if this one is lexicographically larger, negative if
+     * the other one is, 0 if they are equal
+     */
+    public int compareLexicographically(ConfigurationOrientation other) {
+        if (bits == null || other.bits == null) {
+            return compareCellIndices(cellIndices, other.cellIndices);
+        }
+        int words = Math.min(bits.length, other.bits.length);
+        for (int w = 0; w < words; w++) {
+            long difference = bits[w] ^ other.bits[w];
+            if (difference != 0) {
+                // The lowest differing bit is the first differing character
+                long firstDifference = difference & -difference;
+                return (bits[w] & firstDifference) != 0 ? 1 : -1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Compares the binary strings behind two ascending index sequences of the
+     * same length. At the first position where they differ, the smaller index
+     * is a 1 that the other string does not have there, so it is the larger string.
+     */
+    public static int compareCellIndices(int[] indices, int[] otherIndices) {
+        int count = Math.min(indices.length, otherIndices.length);
+        for (int i = 0; i < count; i++) {
+            if (indices[i] != otherIndices[i]) {
+                return indices[i] < otherIndices[i] ? 1 : -1;
+            }
+        }
+        return 0;
+    }
     
     @Override
     public boolean equals(Object obj) {
@@ -99,20 +307,16 @@ public class ConfigurationOrientation {
 
         ConfigurationOrientation other = (ConfigurationOrientation) obj;
 
-        for (int idx = 0; idx < coordinates.size(); idx++) {
-            if (!coordinates.get(idx).equals(other.coordinates.get(idx))) {
-                return false;
-            }
-        }
-        return true;
+        return sameCells(other, false, false);
     }
 
     // Override hashCode to maintain consistency with equals
     @Override
     public int hashCode() {
-        return Objects.hash(binaryString());
+        return 31 * width + Arrays.hashCode(cellIndices);
     }
 
+    // Equal apart from the tail
     public boolean primeEquals(Object obj) {
         if (this == obj)
             return true;
@@ -122,14 +326,10 @@ public class ConfigurationOrientation {
         
         ConfigurationOrientation other = (ConfigurationOrientation) obj;
 
-        for (int idx = 0; idx < coordinates.size() - 1; idx++) {
-            if (!coordinates.get(idx).equals(other.coordinates.get(idx))) {
-                return false;
-            }
-        }
-        return true;
+        return sameCells(other, false, true);
     }
 
+    // Equal apart from the head and the tail
     public boolean primePrimeEquals(Object obj) {
         if (this == obj)
             return true;
@@ -139,7 +339,53 @@ public class ConfigurationOrientation {
         
         ConfigurationOrientation other = (ConfigurationOrientation) obj;
 
-        for (int idx = 1; idx < coordinates.size() - 1; idx++) {
+        return sameCells(other, true, true);
+    }
+
+    /**
+     * Whether both orientations occupy the same cells, optionally ignoring
+     * their own heads and tails. With equal widths a snake index is the same
+     * cell in both, so the bitsets are compared word by word.
+     */
+    private boolean sameCells(ConfigurationOrientation other, boolean skipHead, boolean skipTail) {
+        if (width != other.width) {
+            return sameCellsByCoordinates(other, skipHead, skipTail);
+        }
+        if (bits == null || other.bits == null) {
+            return sameCellIndices(other, skipHead, skipTail);
+        }
+
+        int head = skipHead ? nextSetBit(bits, 0) : -1;
+        int otherHead = skipHead ? nextSetBit(other.bits, 0) : -1;
+        int tail = skipTail ? lastSetBit(bits) : -1;
+        int otherTail = skipTail ? lastSetBit(other.bits) : -1;
+
+        int words = Math.max(bits.length, other.bits.length);
+        for (int w = 0; w < words; w++) {
+            long word = w < bits.length ? bits[w] : 0;
+            long otherWord = w < other.bits.length ? other.bits[w] : 0;
+            word &= ~bitInWord(w, head) & ~bitInWord(w, tail);
+            otherWord &= ~bitInWord(w, otherHead) & ~bitInWord(w, otherTail);
+            if (word != otherWord) return false;
+        }
+        return true;
+    }
+
+    private boolean sameCellIndices(ConfigurationOrientation other, boolean skipHead, boolean skipTail) {
+        int first = skipHead ? 1 : 0;
+        int last = cellIndices.length - (skipTail ? 1 : 0);
+        for (int i = first; i < last; i++) {
+            if (cellIndices[i] != other.cellIndices[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean sameCellsByCoordinates(ConfigurationOrientation other, boolean skipHead, boolean skipTail) {
+        int first = skipHead ? 1 : 0;
+        int last = coordinates.size() - (skipTail ? 1 : 0);
+        for (int idx = first; idx < last; idx++) {
             if (!coordinates.get(idx).equals(other.coordinates.get(idx))) {
                 return false;
             }
@@ -147,10 +393,28 @@ public class ConfigurationOrientation {
         return true;
     }
 
+    private static long bitInWord(int wordIndex, int index) {
+        return index >= 0 && index >>> 6 == wordIndex ? 1L << index : 0;
+    }
+
+    private static int lastSetBit(long[] bits) {
+        for (int w = bits.length - 1; w >= 0; w--) {
+            if (bits[w] != 0) {
+                return (w << 6) + 63 - Long.numberOfLeadingZeros(bits[w]);
+            }
+        }
+        return -1;
+    }
+
     public List<Coordinate> getCoordinates() {
         return coordinates;
     }
 
+    // Shared like the coordinates, copy before modifying
+    public PackedConfiguration getPackedCoordinates() {
+        return packedCoordinates;
+    }
+
     public void setOrientation(Cardinal newOrientation) {
         this.orientation = newOrientation;
     }
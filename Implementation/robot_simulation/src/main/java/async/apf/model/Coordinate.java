@@ -1,13 +1,8 @@
 package async.apf.model;
 
-import java.util.Objects;
-
-import async.apf.interfaces.IPositioned;
 import async.apf.model.enums.Cardinal;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
 
-public class Coordinate implements IPositioned {
+public class Coordinate {
     private int x;
     private int y;
 
@@ -119,43 +114,23 @@ public class Coordinate implements IPositioned {
     // Override hashCode to maintain consistency with equals
     @Override
     public int hashCode() {
-        return Objects.hash(x + "," + y);
+        return 31 * x + y;
     }
 
-    private static final double POINT_RADIUS = 5.0;
-    @Override
-    public void drawOnCanvas(GraphicsContext gc, double screenX, double screenY, double zoom) {
-        gc.setFill(Color.DODGERBLUE);
-        gc.fillOval(
-            screenX - POINT_RADIUS * zoom / 2,
-            screenY - POINT_RADIUS * zoom / 2,
-            POINT_RADIUS * zoom,
-            POINT_RADIUS * zoom
-        );
+    // Both coordinates in one long, x in the upper and y in the lower half
+    public static long pack(int x, int y) {
+        return (long) x << 32 | (y & 0xffffffffL);
     }
 
-    @Override
-    public Coordinate getCoordinate() {
-        return this;
+    public static int unpackX(long packed) {
+        return (int) (packed >> 32);
     }
 
-    @Override
-    public void hoverEffect(GraphicsContext gc, double width, double height, double screenX, double screenY, double zoom) {
+    public static int unpackY(long packed) {
+        return (int) packed;
     }
 
-    private boolean followed = false;
-    @Override
-    public boolean isFollowed() {
-        return followed;
-    }
-
-    @Override
-    public void follow() {
-        followed = true;
-    }
-
-    @Override
-    public void unfollow() {
-        followed = false;
+    public long pack() {
+        return pack(x, y);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,10 @@
+package async.apf.model;
+
+/**
+ * Answers whether a grid point is occupied, without creating a
+ * {@link Coordinate} for the probe.
+ */
+@FunctionalInterface
+public interface CoordinateMembership {
+    boolean contains(int x, int y);
+}
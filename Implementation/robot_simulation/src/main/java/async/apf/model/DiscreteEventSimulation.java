@@ -0,0 +1,111 @@
+package async.apf.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+import async.apf.model.enums.Cardinal;
+import async.apf.model.enums.SimulationEventType;
+import async.apf.model.events.EventEmitter;
+import async.apf.model.exceptions.InvalidInputException;
+
+/**
+ * Headless engine that runs the Look-Compute-Move cycles of every robot as a
+ * discrete-event loop on a single thread.
+ * <p>
+ * Each scheduler pick advances the picked robot by one stage of its cycle
+ * (LOOK, COMPUTE, MOVE), so a robot may look at a configuration that other
+ * robots change before it moves, exactly like in the threaded engine, but
+ * without per-robot threads, latches or artificial delays.
+ */
+public class DiscreteEventSimulation extends AbstractSimulation {
+    // The stage each robot completed most recently, IDLE between cycles
+    private final RobotState[] stages;
+
+    public DiscreteEventSimulation(EventEmitter globalEventEmitter, List<Coordinate> startingConfiguration, List<Coordinate> targetPattern) throws InvalidInputException {
+        this(globalEventEmitter, startingConfiguration, targetPattern, null);
+    }
+
+    public DiscreteEventSimulation(EventEmitter globalEventEmitter, List<Coordinate> startingConfiguration, List<Coordinate> targetPattern, AsyncScheduler scheduler) throws InvalidInputException {
+        super(globalEventEmitter, startingConfiguration, targetPattern, scheduler);
+
+        for (int i = 0; i < startingConfiguration.size(); i++) {
+            this.robots.add(new Robot(globalEventEmitter));
+        }
+        this.stages = new RobotState[this.robots.size()];
+        Arrays.fill(this.stages, RobotState.IDLE);
+    }
+
+    /**
+     * Starts the simulation on its own thread, for callers that drive it
+     * through {@link async.apf.interfaces.IModel}
+     */
+    @Override
+    public void begin() {
+        if (this.hasBegun) return;
+
+        markStarted();
+        new Thread(this::loop).start();
+    }
+
+    /**
+     * Runs the simulation to completion (or failure) on the calling thread
+     */
+    public void run() {
+        if (this.hasBegun) return;
+
+        markStarted();
+        loop();
+    }
+
+    private void loop() {
+        while (!completed && !failed && !stopped) {
+            awaitResume();
+            if (stopped) break;
+
+            int index = this.scheduler.pickNext();
+            step(index);
+        }
+        emitOutcome();
+    }
+
+    private void step(int index) {
+        Robot robot = robots.get(index);
+        Coordinate position = currentConfiguration.get(index);
+        int x = position.getX();
+        int y = position.getY();
+
+        switch (stages[index]) {
+            case IDLE -> {
+                this.statistics.incrementActivationCounter(index);
+                this.scheduler.recordCycle(index);
+                robot.beginCycle(index);
+                handleLookEvent(index, robot.getCurrentPhase(), x, y, robot);
+                stages[index] = RobotState.LOOK;
+            }
+            case LOOK -> {
+                emitRobotEvent(index, SimulationEventType.ROBOT_COMPUTING, robot.getCurrentPhase(), x, y);
+                if (!robot.computeNextMove()) {
+                    endSimulation();
+                }
+                this.scheduler.recordDecision(index, robot.getGlobalMove() != null);
+                stages[index] = RobotState.COMPUTE;
+            }
+            case COMPUTE -> {
+                Cardinal move = robot.getGlobalMove();
+                int phase = robot.getCurrentPhase();
+                if (move != null) {
+                    switch (move) {
+                        case NORTH -> handleMoveEvent(index, phase, x, y, 0, 1);
+                        case EAST  -> handleMoveEvent(index, phase, x, y, 1, 0);
+                        case SOUTH -> handleMoveEvent(index, phase, x, y, 0, -1);
+                        case WEST  -> handleMoveEvent(index, phase, x, y, -1, 0);
+                    }
+                }
+                robot.resetState();
+                emitRobotEvent(index, SimulationEventType.ROBOT_IDLE, phase, position.getX(), position.getY());
+                stages[index] = RobotState.IDLE;
+            }
+            default -> throw new IllegalStateException("Unexpected stage: " + stages[index]);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package async.apf.model;
+
+import java.util.Arrays;
+
+/**
+ * Set of primitive longs with open addressing and linear probing, for packed
+ * coordinates (see {@link Coordinate#pack(int, int)}). Removal shifts the
+ * following entries back instead of leaving tombstones, so lookups stay
+ * short no matter how often robots move.
+ */
+public class LongOpenHashSet {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    // 0 marks a free slot, the key 0 itself is tracked separately
+    private long[] keys;
+    private int mask;
+    private boolean containsZero = false;
+    private int size = 0;
+    private int resizeThreshold;
+
+    public LongOpenHashSet() {
+        this(16);
+    }
+
+    public LongOpenHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.mask = capacity - 1;
+        this.resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    public boolean contains(long key) {
+        if (key == 0) return containsZero;
+
+        for (int slot = slotOf(key); keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) return true;
+        }
+        return false;
+    }
+
+    // Returns false if the key was already present
+    public boolean add(long key) {
+        if (key == 0) {
+            if (containsZero) return false;
+            containsZero = true;
+            size++;
+            return true;
+        }
+
+        int slot = slotOf(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) return false;
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        if (++size > resizeThreshold) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    // Returns false if the key was not present
+    public boolean remove(long key) {
+        if (key == 0) {
+            if (!containsZero) return false;
+            containsZero = false;
+            size--;
+            return true;
+        }
+
+        int slot = slotOf(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == 0) return false;
+            slot = (slot + 1) & mask;
+        }
+        shiftBack(slot);
+        size--;
+        return true;
+    }
+
+    // Moves later entries of the probe sequence into the freed slot
+    private void shiftBack(int free) {
+        int slot = free;
+        while (true) {
+            slot = (slot + 1) & mask;
+            long key = keys[slot];
+            if (key == 0) break;
+
+            int home = slotOf(key);
+            // The entry may move only if the free slot lies between its home and its slot
+            boolean movable = free <= slot
+                ? home <= free || home > slot
+                : home <= free && home > slot;
+            if (movable) {
+                keys[free] = key;
+                free = slot;
+            }
+        }
+        keys[free] = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        allocate(capacity);
+        for (long key : oldKeys) {
+            if (key == 0) continue;
+
+            int slot = slotOf(key);
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        containsZero = false;
+        size = 0;
+    }
+
+    private int slotOf(long key) {
+        // Finalizer of MurmurHash3, packed coordinates are far from uniformly distributed
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+}
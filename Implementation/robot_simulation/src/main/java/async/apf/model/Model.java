@@ -1,42 +1,43 @@
 package async.apf.model;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import async.apf.interfaces.IEvent;
+import async.apf.interfaces.IEventListener;
 import async.apf.interfaces.IModel;
+import async.apf.model.enums.SimulationEngine;
 import async.apf.model.enums.SimulationEventType;
 import async.apf.model.events.EventEmitter;
 import async.apf.model.events.SimulationEvent;
 import async.apf.model.exceptions.InvalidInputException;
 
 public class Model implements IModel {
-    private List<Coordinate> loadedStartingConfiguration;
-    private List<Coordinate> loadedTargetPattern;
+    private PackedConfiguration loadedStartingConfiguration;
+    private PackedConfiguration loadedTargetPattern;
 
     private final EventEmitter simulationEventEmitter;
+    private final SimulationEngine engine;
 
-    private Simulation currentSimulation;
+    private AbstractSimulation currentSimulation;
     private int currentDelay;
 
     public Model(EventEmitter simulationEventEmitter) {
+        this(simulationEventEmitter, SimulationEngine.THREADED);
+    }
+
+    public Model(EventEmitter simulationEventEmitter, SimulationEngine engine) {
         this.simulationEventEmitter = simulationEventEmitter;
+        this.engine = engine;
     }
 
     @Override
     public void storeStartingConfiguration(List<Coordinate> pattern) {
-        this.loadedStartingConfiguration = new ArrayList<>();
-        for (Coordinate coordinate : pattern) {
-            this.loadedStartingConfiguration.add(coordinate.copy());
-        }
+        this.loadedStartingConfiguration = PackedConfiguration.of(pattern);
     }
 
     @Override
     public void storeTargetPattern(List<Coordinate> pattern) {
-        this.loadedTargetPattern = new ArrayList<>();
-        for (Coordinate coordinate : pattern) {
-            this.loadedTargetPattern.add(coordinate.copy());
-        }
+        this.loadedTargetPattern = PackedConfiguration.of(pattern);
     }
 
     @Override
@@ -57,21 +58,28 @@ public class Model implements IModel {
     }
 
     private void initializeSimulation() throws InvalidInputException {
-        List<Coordinate> startingConfigurationCopy = new ArrayList<>();
-        for (Coordinate pos : this.loadedStartingConfiguration) {
-            startingConfigurationCopy.add(new Coordinate(pos.getX(), pos.getY()));
-        }
-        List<Coordinate> targetPatternCopy = new ArrayList<>();
-        for (Coordinate pos : this.loadedTargetPattern) {
-            targetPatternCopy.add(new Coordinate(pos.getX(), pos.getY()));
-        }
+        // Every simulation gets its own coordinates, it moves them in place
+        List<Coordinate> startingConfigurationCopy = this.loadedStartingConfiguration.toCoordinates();
+        List<Coordinate> targetPatternCopy = this.loadedTargetPattern.toCoordinates();
 
         if (this.currentSimulation != null) {
-            this.simulationEventEmitter.removeEventListener(this.currentSimulation);
+            this.currentSimulation.shutdown();
+        }
+        if (this.currentSimulation instanceof IEventListener listener) {
+            this.simulationEventEmitter.removeEventListener(listener);
         }
-        this.currentSimulation = new Simulation(this.simulationEventEmitter, startingConfigurationCopy, targetPatternCopy);
+        this.currentSimulation = createSimulation(startingConfigurationCopy, targetPatternCopy);
         this.currentSimulation.setDelay(this.currentDelay);
-        this.simulationEventEmitter.addEventListener(this.currentSimulation);
+        if (this.currentSimulation instanceof IEventListener listener) {
+            this.simulationEventEmitter.addRobotEventListener(listener);
+        }
+    }
+
+    private AbstractSimulation createSimulation(List<Coordinate> startingConfiguration, List<Coordinate> targetPattern) throws InvalidInputException {
+        return switch (this.engine) {
+            case THREADED       -> new Simulation(this.simulationEventEmitter, startingConfiguration, targetPattern);
+            case DISCRETE_EVENT -> new DiscreteEventSimulation(this.simulationEventEmitter, startingConfiguration, targetPattern);
+        };
     }
 
     @Override
@@ -1,14 +1,15 @@
 package async.apf.model;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
-import java.util.function.Function;
 
 import async.apf.model.enums.Cardinal;
 
 public final class OrientationHelper {
+    // Above this many SER cells per robot, orientations are computed from the robots alone
+    private static final int SPARSE_CELLS_PER_ROBOT = 32;
+
     private OrientationHelper() {}
 
     public static RobotOrientation orientRobotAndConfiguration(List<Coordinate> configuration) {
@@ -20,6 +21,22 @@ public final class OrientationHelper {
         return new RobotOrientation(orientedConfiguration, selfPosition);
     }
 
+    /**
+     * Orients the configuration for one of its robots, reusing the canonical
+     * orientation of the configuration. The canonical orientation does not
+     * change under translation, so only the robot's own position has to be
+     * derived, from the SER of the configuration.
+     */
+    public static RobotOrientation orientRobot(ConfigurationOrientation orientedConfiguration, SER ser, Coordinate robotPosition) {
+        int x = robotPosition.getX();
+        int y = robotPosition.getY();
+        Coordinate selfPosition = getSelfPosition(orientedConfiguration,
+            ser.getMinX() - x, ser.getMinY() - y,
+            ser.getMaxX() - x, ser.getMaxY() - y);
+
+        return new RobotOrientation(orientedConfiguration, selfPosition);
+    }
+
     public static List<Coordinate> copyCoordinates(List<Coordinate> configuration) {
         List<Coordinate> copy = new ArrayList<>();
         for (Coordinate coordinate : configuration) {
@@ -29,62 +46,49 @@ public final class OrientationHelper {
     }
 
     public static ConfigurationOrientation orientConfiguration(List<Coordinate> configuration) {
-        List<Coordinate> copy = new ArrayList<>();
-        for (Coordinate pos : configuration) {
-            copy.add(new Coordinate(pos.getX(), pos.getY()));
-        }
-        int minX = Integer.MAX_VALUE;
-        int minY = Integer.MAX_VALUE;
-        int maxX = Integer.MIN_VALUE;
-        int maxY = Integer.MIN_VALUE;
+        return orientConfiguration(PackedConfiguration.of(configuration));
+    }
 
-        // Iterate over the points to find the min and max x, y values
-        for (Coordinate point : copy) {
-            int x = point.getX();
-            int y = point.getY();
-            minX = Math.min(minX, x);
-            minY = Math.min(minY, y);
-            maxX = Math.max(maxX, x);
-            maxY = Math.max(maxY, y);
-        }
+    // Reads the configuration without modifying or copying it
+    public static ConfigurationOrientation orientConfiguration(PackedConfiguration configuration) {
+        int minX = configuration.getMinX();
+        int minY = configuration.getMinY();
+        int maxX = configuration.getMaxX();
+        int maxY = configuration.getMaxY();
 
         // We are interested in grid points, so we add 1 to the height and width
         int width = maxX - minX + 1;
         int height = maxY - minY + 1;
 
-        Coordinate origin = new Coordinate(minX, minY);
-
-        // Reposition configuration to the origin.
-        for (Coordinate point : copy) {
-            point.translateInPlace(origin);
+        if ((long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The SER of the configuration is too large: " + width + "x" + height + "!");
         }
 
         // Rotate the configuration such that it's a "tall" rectangle (height >= width)
-        boolean rotated = false;
-        if (width > height) {
-            makeConfigurationTall(height, copy);
-            int tmp = height;
-            height = width;
-            width = tmp;
-            rotated = true;
+        boolean rotated = width > height;
+        int tallWidth = rotated ? height : width;
+        int tallHeight = rotated ? width : height;
+
+        // Reposition the configuration to the origin. A rotated configuration is
+        // turned WEST and moved back next to the origin, which makes it tall.
+        int[] xs = new int[configuration.size()];
+        int[] ys = new int[configuration.size()];
+        for (int i = 0; i < xs.length; i++) {
+            int x = configuration.getX(i) - minX;
+            int y = configuration.getY(i) - minY;
+            xs[i] = rotated ? height - 1 - y : x;
+            ys[i] = rotated ? x : y;
         }
 
-        Boolean[][] positionMatrix = initializePositionMatrix(width, height, copy);
-        ConfigurationOrientation orientation = findBestOrientation(width, height, positionMatrix);
+        ConfigurationOrientation orientation = isSparse(xs.length, width, height)
+            ? findBestOrientationSparse(tallWidth, tallHeight, xs, ys)
+            : findBestOrientation(tallWidth, tallHeight, xs, ys);
         if (rotated) {
             orientation.adjustOrientationByCardinal(Cardinal.EAST);
         }
         return orientation;
     }
 
-    private static void makeConfigurationTall(int height, List<Coordinate> configuration) {
-        Coordinate corner = new Coordinate(-height + 1, 0);
-        for (Coordinate point : configuration) {
-            point.rotateByCardinal(Cardinal.WEST);
-            point.translateInPlace(corner);
-        }
-    }
-
     public static Coordinate indexToCoordinate(int index, int width) {
         int y = index / width;
         int rem = index % width;
@@ -102,224 +106,218 @@ public final class OrientationHelper {
         return index.getY() * width + xOffset;
     }
 
-    private static Boolean[][] initializePositionMatrix(int width, int height, List<Coordinate> configuration) {
-        // Create a boolean matrix to determine lexicographic strings
-        Boolean[][] positionMatrix = new Boolean[width][height];
-        for (Boolean[] positionMatrixColumn : positionMatrix) {
-            for (int y = 0; y < positionMatrixColumn.length; y++) {
-                positionMatrixColumn[y] = false;
-            }
-        }
-        for (Coordinate point : configuration) {
-            positionMatrix[point.getX()][point.getY()] = true;
-        }
-        return positionMatrix;
+    /**
+     * Whether the SER is so much larger than the number of robots that sorting
+     * the robots' snake indices is cheaper than walking every cell of the SER
+     */
+    static boolean isSparse(int robotCount, int width, int height) {
+        return (long) width * height > (long) SPARSE_CELLS_PER_ROBOT * robotCount;
+    }
+
+    // One way to read the SER along a snake path, and the orientation it stands for
+    record SnakeOrder(boolean leftToRight, boolean bottomToTop, boolean weaveHorizontally, Cardinal orientation, boolean xMirrored) {}
+
+    // lamAB lamBA lamCD lamDC
+    private static final List<SnakeOrder> TALL_ORDERS = List.of(
+        new SnakeOrder(true,  true,  true,  Cardinal.NORTH, false),
+        new SnakeOrder(false, true,  true,  Cardinal.NORTH, true),
+        new SnakeOrder(false, false, true,  Cardinal.SOUTH, false),
+        new SnakeOrder(true,  false, true,  Cardinal.SOUTH, true)
+    );
+
+    // lamAB lamBA lamAD lamDA lamBC lamCB lamDC lamCD
+    private static final List<SnakeOrder> SQUARE_ORDERS = List.of(
+        new SnakeOrder(true,  true,  true,  Cardinal.NORTH, false),
+        new SnakeOrder(false, true,  true,  Cardinal.NORTH, true),
+        new SnakeOrder(true,  true,  false, Cardinal.EAST,  true),
+        new SnakeOrder(true,  false, false, Cardinal.EAST,  false),
+        new SnakeOrder(false, true,  false, Cardinal.WEST,  false),
+        new SnakeOrder(false, false, false, Cardinal.WEST,  true),
+        new SnakeOrder(true,  false, true,  Cardinal.SOUTH, true),
+        new SnakeOrder(false, false, true,  Cardinal.SOUTH, false)
+    );
+
+    // lamAB lamCD
+    private static final List<SnakeOrder> SINGLE_COLUMN_ORDERS = List.of(
+        new SnakeOrder(true,  true,  true,  Cardinal.NORTH, false),
+        new SnakeOrder(false, false, true,  Cardinal.SOUTH, false)
+    );
+
+    // The candidate snake orders of a tall SER, in the order ties are decided
+    static List<SnakeOrder> candidateOrders(int width, int height) {
+        if (width == 1) return SINGLE_COLUMN_ORDERS;
+        return height > width ? TALL_ORDERS : SQUARE_ORDERS;
+    }
+
+    // The coordinates are those of the tall SER, with its corner at the origin
+    static ConfigurationOrientation findBestOrientation(int width, int height, int[] xs, int[] ys) {
+        List<SnakeOrder> orders = candidateOrders(width, height);
+        long[][] candidates = buildSnakes(width, height, xs, ys, orders);
+
+        // Only the winner is turned into an orientation
+        int winner = findLexicographicallyLargest(candidates);
+        SnakeOrder best = orders.get(winner);
+        return new ConfigurationOrientation(
+            candidates[winner],
+            best.orientation(),
+            best.xMirrored(),
+            width,
+            height);
     }
 
-    private static ConfigurationOrientation findBestOrientation(int width, int height, Boolean[][] positionMatrix) {
-        if (width > 1) {
-            if (height > width) {
-                // lamAB lamBA lamCD lamDC
-                ConfigurationOrientation lamABOrientation = new ConfigurationOrientation(
-                    snakeIterate(positionMatrix, x -> x, width, height,
-                    true, true, true),
-                    Cardinal.NORTH,
-                    false,
-                    width,
-                    height);
-    
-                ConfigurationOrientation lamBAOrientation = new ConfigurationOrientation(
-                    snakeIterate(positionMatrix, x -> x, width, height,
-                    false, true, true),
-                    Cardinal.NORTH,
-                    true,
-                    width,
-                    height);
-
-                ConfigurationOrientation lamCDOrientation = new ConfigurationOrientation(
-                    snakeIterate(positionMatrix, x -> x, width, height,
-                    false, false, true),
-                    Cardinal.SOUTH,
-                    false,
-                    width,
-                    height);
-    
-                ConfigurationOrientation lamDCOrientation = new ConfigurationOrientation(
-                    snakeIterate(positionMatrix, x -> x, width, height,
-                    true, false, true),
-                    Cardinal.SOUTH,
-                    true,
-                    width,
-                    height);
-                
-                return findOrientationWithLargestLexographicBinaryString(new ArrayList<>(List.of(
-                    lamABOrientation,
-                    lamBAOrientation,
-                    lamCDOrientation,
-                    lamDCOrientation
-                )));
+    /**
+     * Packs every row and, if needed, every column of the SER into a bitset,
+     * forwards and backwards. Each snake path is then just these lines copied
+     * one after the other, a word at a time.
+     */
+    static long[][] buildSnakes(int width, int height, int[] xs, int[] ys, List<SnakeOrder> orders) {
+        boolean needsColumns = false;
+        for (SnakeOrder order : orders) {
+            needsColumns |= !order.weaveHorizontally();
+        }
+
+        int rowWords = ConfigurationOrientation.wordCount(width);
+        int columnWords = ConfigurationOrientation.wordCount(height);
+        long[] rows = new long[height * rowWords];
+        long[] columns = needsColumns ? new long[width * columnWords] : null;
+        for (int i = 0; i < xs.length; i++) {
+            ConfigurationOrientation.setBit(rows, ys[i] * rowWords * 64 + xs[i]);
+            if (needsColumns) {
+                ConfigurationOrientation.setBit(columns, xs[i] * columnWords * 64 + ys[i]);
+            }
+        }
+        long[] reversedRows = reverseLines(rows, height, width);
+        long[] reversedColumns = needsColumns ? reverseLines(columns, width, height) : null;
+
+        long[][] snakes = new long[orders.size()][];
+        for (int i = 0; i < snakes.length; i++) {
+            SnakeOrder order = orders.get(i);
+            long[] snake = new long[ConfigurationOrientation.wordCount(width * height)];
+            if (order.weaveHorizontally()) {
+                for (int k = 0; k < height; k++) {
+                    int y = order.bottomToTop() ? k : height - 1 - k;
+                    boolean reversed = order.leftToRight() == (k % 2 == 1);
+                    appendLine(snake, k * width, reversed ? reversedRows : rows, y * rowWords, rowWords);
+                }
             }
-            // width == height (square) && width > 1
             else {
-                // lamAB lamBA lamAD lamDA lamBC lamCB lamDC lamCD
-                ConfigurationOrientation lamABOrientation = new ConfigurationOrientation(
-                    snakeIterate(positionMatrix, x -> x, width, height,
-                    true, true, true),
-                    Cardinal.NORTH,
-                    false,
-                    width,
-                    height);
-    
-                ConfigurationOrientation lamBAOrientation = new ConfigurationOrientation(
-                    snakeIterate(positionMatrix, x -> x, width, height,
-                    false, true, true),
-                    Cardinal.NORTH,
-                    true,
-                    width,
-                    height);
-    
-                ConfigurationOrientation lamADOrientation = new ConfigurationOrientation(
-                    snakeIterate(positionMatrix, x -> x, width, height,
-                    true,  true,  false),
-                    Cardinal.EAST,
-                    true,
-                    width,
-                    height);
-    
-                ConfigurationOrientation lamDAOrientation = new ConfigurationOrientation(
-                    snakeIterate(positionMatrix, x -> x, width, height,
-                    true,  false, false),
-                    Cardinal.EAST,
-                    false,
-                    width,
-                    height);
-    
-                ConfigurationOrientation lamBCOrientation = new ConfigurationOrientation(
-                    snakeIterate(positionMatrix, x -> x, width, height,
-                    false, true,  false),
-                    Cardinal.WEST,
-                    false,
-                    width,
-                    height);
-    
-                ConfigurationOrientation lamCBOrientation = new ConfigurationOrientation(
-                    snakeIterate(positionMatrix, x -> x, width, height,
-                    false, false, false),
-                    Cardinal.WEST,
-                    true,
-                    width,
-                    height);
-    
-                ConfigurationOrientation lamDCOrientation = new ConfigurationOrientation(
-                    snakeIterate(positionMatrix, x -> x, width, height,
-                    true, false, true),
-                    Cardinal.SOUTH,
-                    true,
-                    width,
-                    height);
-    
-                ConfigurationOrientation lamCDOrientation = new ConfigurationOrientation(
-                    snakeIterate(positionMatrix, x -> x, width, height,
-                    false, false, true),
-                    Cardinal.SOUTH,
-                    false,
-                    width,
-                    height);
-                
-                return findOrientationWithLargestLexographicBinaryString(new ArrayList<>(List.of(
-                    lamABOrientation,
-                    lamBAOrientation,
-                    lamADOrientation,
-                    lamDAOrientation,
-                    lamBCOrientation,
-                    lamCBOrientation,
-                    lamDCOrientation,
-                    lamCDOrientation
-                )));
+                for (int k = 0; k < width; k++) {
+                    int x = order.leftToRight() ? k : width - 1 - k;
+                    boolean reversed = order.bottomToTop() == (k % 2 == 1);
+                    appendLine(snake, k * height, reversed ? reversedColumns : columns, x * columnWords, columnWords);
+                }
             }
+            snakes[i] = snake;
         }
-        // width == 1
-        else {
-            // lamAB lamCD
-            ConfigurationOrientation lamABOrientation = new ConfigurationOrientation(
-                snakeIterate(positionMatrix, x -> x, width, height,
-                true, true, true),
-                Cardinal.NORTH,
-                false,
-                width,
-                height);
-
-            ConfigurationOrientation lamCDOrientation = new ConfigurationOrientation(
-                snakeIterate(positionMatrix, x -> x, width, height,
-                false, false, true),
-                Cardinal.SOUTH,
-                false,
-                width,
-                height);
-            
-            return findOrientationWithLargestLexographicBinaryString(new ArrayList<>(List.of(
-                lamABOrientation,
-                lamCDOrientation
-            )));
-        }
+        return snakes;
     }
 
-    public static <T, R> List<R> snakeIterate(T[][] matrix, Function<T, R> function, int width, int height, boolean leftToRight, boolean bottomToTop, boolean weaveHorizontally) {
-        List<R> result = new ArrayList<>();
-        boolean flip = false;
-
-        for (    int outer = 0; outer < (weaveHorizontally ? height : width); outer++) {
-            for (int inner = 0; inner < (weaveHorizontally ? width : height); inner++) {
-                int x = findX(outer, inner, width,  flip, weaveHorizontally, leftToRight);
-                int y = findY(outer, inner, height, flip, weaveHorizontally, bottomToTop);
-        
-                result.add(function.apply(matrix[x][y]));
+    // The same lines with the order of their first lineLength bits reversed
+    private static long[] reverseLines(long[] lines, int lineCount, int lineLength) {
+        int lineWords = ConfigurationOrientation.wordCount(lineLength);
+        // Reversing whole words leaves the line shifted up by the unused bits of its last word
+        int shift = lineWords * 64 - lineLength;
+        long[] reversed = new long[lines.length];
+        for (int line = 0; line < lineCount; line++) {
+            int start = line * lineWords;
+            for (int w = 0; w < lineWords; w++) {
+                long word = Long.reverse(lines[start + lineWords - 1 - w]) >>> shift;
+                if (shift != 0 && w + 1 < lineWords) {
+                    word |= Long.reverse(lines[start + lineWords - 2 - w]) << (64 - shift);
+                }
+                reversed[start + w] = word;
             }
-            flip = !flip;
         }
+        return reversed;
+    }
 
-        return result;
+    // ORs a line into the snake at the given bit offset. Bits past the line's length must be 0.
+    private static void appendLine(long[] snake, int offset, long[] lines, int start, int lineWords) {
+        int shift = offset & 63;
+        int target = offset >>> 6;
+        for (int w = 0; w < lineWords; w++) {
+            long word = lines[start + w];
+            if (word == 0) continue;
+            snake[target + w] |= word << shift;
+            if (shift != 0 && target + w + 1 < snake.length) {
+                snake[target + w + 1] |= word >>> (64 - shift);
+            }
+        }
     }
 
-    private static int findX(int outer, int inner, int width, boolean flip, boolean weaveHorizontally, boolean leftToRight) {
-        return weaveHorizontally
-            ? (leftToRight == flip ? width - inner - 1 : inner)
-            : (leftToRight ? outer : width - outer - 1);
+    /**
+     * Sparse counterpart of {@link #findBestOrientation}: every candidate is the
+     * sorted list of the robots' snake indices, so the cost depends on the
+     * number of robots rather than on the area of the SER.
+     * The coordinates are those of the tall SER, with its corner at the origin.
+     */
+    static ConfigurationOrientation findBestOrientationSparse(int width, int height, int[] xs, int[] ys) {
+        SnakeOrder bestOrder = null;
+        int[] best = null;
+        int[] candidate = new int[xs.length];
+        for (SnakeOrder order : candidateOrders(width, height)) {
+            for (int i = 0; i < xs.length; i++) {
+                candidate[i] = snakeIndex(xs[i], ys[i], width, height, order);
+            }
+            Arrays.sort(candidate);
+            // On ties the earlier candidate wins
+            if (best == null || ConfigurationOrientation.compareCellIndices(candidate, best) > 0) {
+                int[] previous = best;
+                best = candidate;
+                bestOrder = order;
+                candidate = previous != null ? previous : new int[xs.length];
+            }
+        }
+        return ConfigurationOrientation.fromCellIndices(best, bestOrder.orientation(), bestOrder.xMirrored(), width, height);
     }
-    private static int findY(int outer, int inner, int height, boolean flip, boolean weaveHorizontally, boolean bottomToTop) {
-        return weaveHorizontally
-            ? (bottomToTop ? outer : height - outer - 1)
-            : (bottomToTop == flip ? height - inner - 1 : inner);
+
+    // Position of the cell on the snake path of the order
+    static int snakeIndex(int x, int y, int width, int height, SnakeOrder order) {
+        if (order.weaveHorizontally()) {
+            int outer = order.bottomToTop() ? y : height - 1 - y;
+            boolean flip = outer % 2 == 1;
+            int inner = order.leftToRight() == flip ? width - 1 - x : x;
+            return outer * width + inner;
+        }
+        int outer = order.leftToRight() ? x : width - 1 - x;
+        boolean flip = outer % 2 == 1;
+        int inner = order.bottomToTop() == flip ? height - 1 - y : y;
+        return outer * height + inner;
     }
-    
-    private static ConfigurationOrientation findOrientationWithLargestLexographicBinaryString(ArrayList<ConfigurationOrientation> orientations) {
-        if (orientations == null || orientations.isEmpty()) {
+
+    /**
+     * Picks the bitset with the lexicographically largest binary string, all
+     * candidates being read one 64-bit word at a time. Each round keeps only the
+     * candidates with the largest word, so it usually ends after the first word.
+     * @return index of the winner, on ties the earliest candidate
+     */
+    static int findLexicographicallyLargest(long[][] candidates) {
+        if (candidates == null || candidates.length == 0) {
             throw new IllegalArgumentException("The input array cannot be null or empty.");
         }
+        if (candidates.length > Integer.SIZE) {
+            throw new IllegalArgumentException("At most " + Integer.SIZE + " candidates can be compared at once.");
+        }
 
-        // Assumes all lists are of the same size
-        int binaryLength = orientations.get(0).getBinaryRepresentation().size();
-
-        for (int index = 0; index < binaryLength; index++) {
-            if (orientations.size() <= 1) break; // If one or no candidates remain, break out of the loop
-            final int finalIndex = index;
-            boolean hasTrueAtIndex = orientations
-                .stream()
-                .anyMatch(orientation -> Boolean.TRUE.equals(orientation.getBinaryRepresentation().get(finalIndex)));
-
-            if (hasTrueAtIndex) {
-                // Check all candidates at the current index
-                for (int i = 0; i < orientations.size(); i++) {
-                    List<Boolean> binaryList = orientations.get(i).getBinaryRepresentation();
-                    if (Boolean.FALSE.equals(binaryList.get(index))) {
-                        orientations.remove(i);
-                        i--;
-                    }
+        int alive = candidates.length == Integer.SIZE ? -1 : (1 << candidates.length) - 1;
+        int words = candidates[0].length;
+        for (int w = 0; w < words && Integer.bitCount(alive) > 1; w++) {
+            // The first character is the lowest bit, reversed it is the most significant one
+            long largest = 0;
+            for (int remaining = alive; remaining != 0; remaining &= remaining - 1) {
+                long word = Long.reverse(candidates[Integer.numberOfTrailingZeros(remaining)][w]);
+                if (Long.compareUnsigned(word, largest) > 0) {
+                    largest = word;
+                }
+            }
+            for (int remaining = alive; remaining != 0; remaining &= remaining - 1) {
+                int i = Integer.numberOfTrailingZeros(remaining);
+                if (Long.reverse(candidates[i][w]) != largest) {
+                    alive &= ~(1 << i);
                 }
             }
         }
-
-        return orientations.get(0);
+        return Integer.numberOfTrailingZeros(alive);
     }
 
     private static Coordinate getSelfPosition(List<Coordinate> copy, ConfigurationOrientation orientedConfiguration) {
@@ -334,6 +332,11 @@ public final class OrientationHelper {
             maxY = Math.max(coordinate.getY(), maxY);
         }
 
+        return getSelfPosition(orientedConfiguration, minX, minY, maxX, maxY);
+    }
+
+    // The bounds are those of the configuration translated to the robot's coordinate system
+    private static Coordinate getSelfPosition(ConfigurationOrientation orientedConfiguration, int minX, int minY, int maxX, int maxY) {
         return switch(orientedConfiguration.getOrientation()) {
             case NORTH ->  orientedConfiguration.isXMirrored()
                 ? new Coordinate(maxX, -minY)
@@ -351,59 +354,66 @@ public final class OrientationHelper {
     }
 
     public static boolean isSymmetric(List<Coordinate> coordinates) {
-        Set<Coordinate> coords = new HashSet<>(coordinates);
-        
-        int minX = coordinates.stream().mapToInt(Coordinate::getX).min().orElse(0);
-        int maxX = coordinates.stream().mapToInt(Coordinate::getX).max().orElse(0);
-        int minY = coordinates.stream().mapToInt(Coordinate::getY).min().orElse(0);
-        int maxY = coordinates.stream().mapToInt(Coordinate::getY).max().orElse(0);
-
-        int midX = (minX + maxX) / 2;
-        int midY = (minY + maxY) / 2;
-
-        return hasVerticalSymmetry(coords, midX)
-            || hasHorizontalSymmetry(coords, midY)
-            || hasDiagonalSymmetry1(coords, midX, midY)
-            || hasDiagonalSymmetry2(coords, midX, midY)
-            || has180DegreeRotationSymmetry(coords, midX, midY);
+        return isSymmetric(PackedConfiguration.of(coordinates));
+    }
+
+    public static boolean isSymmetric(PackedConfiguration configuration) {
+        LongOpenHashSet cells = new LongOpenHashSet(configuration.size());
+        for (int i = 0; i < configuration.size(); i++) {
+            cells.add(configuration.getPacked(i));
+        }
+        return isSymmetric(configuration, (x, y) -> cells.contains(Coordinate.pack(x, y)));
+    }
+
+    // The cells must be exactly the positions of the configuration
+    public static boolean isSymmetric(PackedConfiguration configuration, CoordinateMembership cells) {
+        if (configuration.size() == 0) return true;
+
+        int midX = (configuration.getMinX() + configuration.getMaxX()) / 2;
+        int midY = (configuration.getMinY() + configuration.getMaxY()) / 2;
+
+        return hasVerticalSymmetry(configuration, cells, midX)
+            || hasHorizontalSymmetry(configuration, cells, midY)
+            || hasDiagonalSymmetry1(configuration, cells, midX, midY)
+            || hasDiagonalSymmetry2(configuration, cells, midX, midY)
+            || has180DegreeRotationSymmetry(configuration, cells, midX, midY);
     }
 
-    public static boolean hasVerticalSymmetry(Set<Coordinate> coords, int midX) {
-        for (Coordinate coord : coords) {
-            Coordinate mirrored = new Coordinate(2 * midX - coord.getX(), coord.getY());
-            if (!coords.contains(mirrored)) return false;
+    public static boolean hasVerticalSymmetry(PackedConfiguration configuration, CoordinateMembership cells, int midX) {
+        for (int i = 0; i < configuration.size(); i++) {
+            if (!cells.contains(2 * midX - configuration.getX(i), configuration.getY(i))) return false;
         }
         return true;
     }
 
-    public static boolean hasHorizontalSymmetry(Set<Coordinate> coords, int midY) {
-        for (Coordinate coord : coords) {
-            Coordinate mirrored = new Coordinate(coord.getX(), 2 * midY - coord.getY());
-            if (!coords.contains(mirrored)) return false;
+    public static boolean hasHorizontalSymmetry(PackedConfiguration configuration, CoordinateMembership cells, int midY) {
+        for (int i = 0; i < configuration.size(); i++) {
+            if (!cells.contains(configuration.getX(i), 2 * midY - configuration.getY(i))) return false;
         }
         return true;
     }
 
-    public static boolean hasDiagonalSymmetry1(Set<Coordinate> coords, int midX, int midY) {
-        for (Coordinate coord : coords) {
-            Coordinate mirrored = new Coordinate(midX - (midY - coord.getY()), midY - (midX - coord.getX()));
-            if (!coords.contains(mirrored)) return false;
+    public static boolean hasDiagonalSymmetry1(PackedConfiguration configuration, CoordinateMembership cells, int midX, int midY) {
+        for (int i = 0; i < configuration.size(); i++) {
+            int x = configuration.getX(i);
+            int y = configuration.getY(i);
+            if (!cells.contains(midX - (midY - y), midY - (midX - x))) return false;
         }
         return true;
     }
 
-    public static boolean hasDiagonalSymmetry2(Set<Coordinate> coords, int midX, int midY) {
-        for (Coordinate coord : coords) {
-            Coordinate mirrored = new Coordinate(midX + (midY - coord.getY()), midY + (midX - coord.getX()));
-            if (!coords.contains(mirrored)) return false;
+    public static boolean hasDiagonalSymmetry2(PackedConfiguration configuration, CoordinateMembership cells, int midX, int midY) {
+        for (int i = 0; i < configuration.size(); i++) {
+            int x = configuration.getX(i);
+            int y = configuration.getY(i);
+            if (!cells.contains(midX + (midY - y), midY + (midX - x))) return false;
         }
         return true;
     }
 
-    public static boolean has180DegreeRotationSymmetry(Set<Coordinate> coords, int midX, int midY) {
-        for (Coordinate coord : coords) {
-            Coordinate rotated = new Coordinate(2 * midX - coord.getX(), 2 * midY - coord.getY());
-            if (!coords.contains(rotated)) return false;
+    public static boolean has180DegreeRotationSymmetry(PackedConfiguration configuration, CoordinateMembership cells, int midX, int midY) {
+        for (int i = 0; i < configuration.size(); i++) {
+            if (!cells.contains(2 * midX - configuration.getX(i), 2 * midY - configuration.getY(i))) return false;
         }
         return true;
     }
@@ -0,0 +1,193 @@
+package async.apf.model;
+
+import java.util.List;
+
+import async.apf.model.OrientationHelper.SnakeOrder;
+import async.apf.model.enums.Cardinal;
+
+/**
+ * Canonical orientation of a configuration, kept up to date move by move.
+ * The snake bitsets of every candidate orientation are kept, so a move that
+ * stays inside the SER only flips two bits in each of them, and the winner is
+ * only re-decided from the first word that changed. When the SER changes,
+ * or the configuration is sparse, the orientation is computed from scratch.
+ */
+public class OrientationTracker {
+    // The live configuration, read when the snakes have to be rebuilt
+    private final PackedConfiguration configuration;
+
+    // SER the snakes were built for
+    private int minX;
+    private int minY;
+    private int maxX;
+    private int maxY;
+    private boolean rotated;
+    // Sides of the tall SER
+    private int width;
+    private int height;
+
+    private List<SnakeOrder> orders;
+    // One bitset per candidate order, null if the orientation has to be rebuilt on every change
+    private long[][] snakes;
+    // Candidates still in the running in front of every word, up to decidedWord
+    private int[] aliveBefore;
+    // The first word where only the winner was left
+    private int decidedWord;
+    private int winner;
+    private int firstChangedWord;
+    private boolean serChanged = true;
+    // Two robots shared a cell, which the bitsets can not count
+    private boolean collided;
+
+    // Last orientation handed out, null if it is out of date
+    private ConfigurationOrientation orientation;
+
+    public OrientationTracker(PackedConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Records a robot's move. Must be called after the configuration has been
+     * updated, with the SER of the configuration after the move.
+     */
+    void move(int fromX, int fromY, int toX, int toY, SERTracker ser) {
+        orientation = null;
+        if (serChanged || snakes == null) {
+            serChanged = true;
+            return;
+        }
+        if (ser.getMinX() != minX || ser.getMinY() != minY || ser.getMaxX() != maxX || ser.getMaxY() != maxY) {
+            serChanged = true;
+            return;
+        }
+
+        int fromTallX = tallX(fromX, fromY);
+        int fromTallY = tallY(fromX, fromY);
+        int toTallX = tallX(toX, toY);
+        int toTallY = tallY(toX, toY);
+        int firstTo = OrientationHelper.snakeIndex(toTallX, toTallY, width, height, orders.get(0));
+        if ((snakes[0][firstTo >>> 6] & (1L << firstTo)) != 0) {
+            // Moved onto another robot, from now on everything is recomputed
+            collided = true;
+            serChanged = true;
+            return;
+        }
+        for (int i = 0; i < snakes.length; i++) {
+            int from = OrientationHelper.snakeIndex(fromTallX, fromTallY, width, height, orders.get(i));
+            int to = OrientationHelper.snakeIndex(toTallX, toTallY, width, height, orders.get(i));
+            snakes[i][from >>> 6] &= ~(1L << from);
+            snakes[i][to >>> 6] |= 1L << to;
+            firstChangedWord = Math.min(firstChangedWord, Math.min(from, to) >>> 6);
+        }
+    }
+
+    // The canonical orientation of the configuration as it is now
+    public ConfigurationOrientation getOrientation() {
+        if (orientation != null) {
+            return orientation;
+        }
+        if (serChanged) {
+            rebuild();
+        }
+        else if (firstChangedWord < decidedWord) {
+            select(firstChangedWord);
+        }
+        firstChangedWord = Integer.MAX_VALUE;
+
+        if (orientation == null) {
+            SnakeOrder best = orders.get(winner);
+            // The snakes keep changing, the orientation may be shared by robots
+            orientation = new ConfigurationOrientation(
+                snakes[winner].clone(),
+                best.orientation(),
+                best.xMirrored(),
+                width,
+                height);
+            if (rotated) {
+                orientation.adjustOrientationByCardinal(Cardinal.EAST);
+            }
+        }
+        return orientation;
+    }
+
+    private void rebuild() {
+        serChanged = false;
+        minX = configuration.getMinX();
+        minY = configuration.getMinY();
+        maxX = configuration.getMaxX();
+        maxY = configuration.getMaxY();
+        int serWidth = maxX - minX + 1;
+        int serHeight = maxY - minY + 1;
+
+        if (collided
+                || (long) serWidth * serHeight > Integer.MAX_VALUE
+                || OrientationHelper.isSparse(configuration.size(), serWidth, serHeight)) {
+            // Sparse orientations are cheap to compute from the robots alone
+            snakes = null;
+            orientation = OrientationHelper.orientConfiguration(configuration);
+            return;
+        }
+
+        rotated = serWidth > serHeight;
+        width = rotated ? serHeight : serWidth;
+        height = rotated ? serWidth : serHeight;
+        int[] xs = new int[configuration.size()];
+        int[] ys = new int[configuration.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = tallX(configuration.getX(i), configuration.getY(i));
+            ys[i] = tallY(configuration.getX(i), configuration.getY(i));
+        }
+        orders = OrientationHelper.candidateOrders(width, height);
+        snakes = OrientationHelper.buildSnakes(width, height, xs, ys, orders);
+        int occupied = 0;
+        for (long word : snakes[0]) {
+            occupied += Long.bitCount(word);
+        }
+        if (occupied != xs.length) {
+            collided = true;
+            snakes = null;
+            orientation = OrientationHelper.orientConfiguration(configuration);
+            return;
+        }
+
+        aliveBefore = new int[snakes[0].length + 1];
+        aliveBefore[0] = (1 << snakes.length) - 1;
+        select(0);
+    }
+
+    // Same tournament as OrientationHelper.findLexicographicallyLargest, resumed at startWord
+    private void select(int startWord) {
+        int words = snakes[0].length;
+        int alive = aliveBefore[startWord];
+        int w = startWord;
+        for (; w < words; w++) {
+            aliveBefore[w] = alive;
+            if (Integer.bitCount(alive) <= 1) break;
+
+            long largest = 0;
+            for (int remaining = alive; remaining != 0; remaining &= remaining - 1) {
+                long word = Long.reverse(snakes[Integer.numberOfTrailingZeros(remaining)][w]);
+                if (Long.compareUnsigned(word, largest) > 0) {
+                    largest = word;
+                }
+            }
+            for (int remaining = alive; remaining != 0; remaining &= remaining - 1) {
+                int i = Integer.numberOfTrailingZeros(remaining);
+                if (Long.reverse(snakes[i][w]) != largest) {
+                    alive &= ~(1 << i);
+                }
+            }
+        }
+        decidedWord = w;
+        winner = Integer.numberOfTrailingZeros(alive);
+    }
+
+    // A rotated configuration is turned WEST and moved back next to the origin, like in OrientationHelper
+    private int tallX(int x, int y) {
+        return rotated ? maxY - y : x - minX;
+    }
+
+    private int tallY(int x, int y) {
+        return rotated ? x - minX : y - minY;
+    }
+}
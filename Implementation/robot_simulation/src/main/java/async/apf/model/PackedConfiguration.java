@@ -0,0 +1,177 @@
+package async.apf.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import async.apf.model.enums.Cardinal;
+
+/**
+ * Positions of a configuration as two primitive arrays, for the parts of the
+ * model that run on every cycle. {@link Coordinate} objects are only created
+ * at the API and view boundary, through {@link #of(List)} and
+ * {@link #toCoordinates()}.
+ * <p>
+ * Translation, rotation and sorting work in place and do not allocate, apart
+ * from a scratch array that sorting reuses.
+ */
+public final class PackedConfiguration {
+    private final int[] xs;
+    private final int[] ys;
+    // Reused by sort()
+    private long[] sortKeys;
+
+    public PackedConfiguration(int size) {
+        this.xs = new int[size];
+        this.ys = new int[size];
+    }
+
+    public static PackedConfiguration of(List<Coordinate> coordinates) {
+        PackedConfiguration packed = new PackedConfiguration(coordinates.size());
+        for (int i = 0; i < coordinates.size(); i++) {
+            Coordinate coordinate = coordinates.get(i);
+            packed.xs[i] = coordinate.getX();
+            packed.ys[i] = coordinate.getY();
+        }
+        return packed;
+    }
+
+    public PackedConfiguration copy() {
+        PackedConfiguration copy = new PackedConfiguration(size());
+        copyInto(copy);
+        return copy;
+    }
+
+    // Overwrites a configuration of the same size, so repeated copies need no allocation
+    public void copyInto(PackedConfiguration target) {
+        System.arraycopy(xs, 0, target.xs, 0, xs.length);
+        System.arraycopy(ys, 0, target.ys, 0, ys.length);
+    }
+
+    public int size() {
+        return xs.length;
+    }
+
+    public int getX(int index) {
+        return xs[index];
+    }
+
+    public int getY(int index) {
+        return ys[index];
+    }
+
+    // The position as one long, see Coordinate.pack(int, int)
+    public long getPacked(int index) {
+        return Coordinate.pack(xs[index], ys[index]);
+    }
+
+    public void set(int index, int x, int y) {
+        xs[index] = x;
+        ys[index] = y;
+    }
+
+    public void moveBy(int index, int dx, int dy) {
+        xs[index] += dx;
+        ys[index] += dy;
+    }
+
+    public int indexOf(int x, int y) {
+        for (int i = 0; i < xs.length; i++) {
+            if (xs[i] == x && ys[i] == y) return i;
+        }
+        return -1;
+    }
+
+    public boolean contains(int x, int y) {
+        return indexOf(x, y) >= 0;
+    }
+
+    // Moves every position by the given offset
+    public void translate(int dx, int dy) {
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] += dx;
+            ys[i] += dy;
+        }
+    }
+
+    // Same as Coordinate.rotateByCardinal for every position
+    public void rotateByCardinal(Cardinal cardinal) {
+        for (int i = 0; i < xs.length; i++) {
+            int x = xs[i];
+            switch (cardinal) {
+                case WEST -> {
+                    xs[i] = -ys[i];
+                    ys[i] = x;
+                }
+                case EAST -> {
+                    xs[i] = ys[i];
+                    ys[i] = -x;
+                }
+                case SOUTH -> {
+                    xs[i] = -x;
+                    ys[i] = -ys[i];
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    // Sorts by x, then by y
+    public void sort() {
+        if (sortKeys == null) {
+            sortKeys = new long[xs.length];
+        }
+        for (int i = 0; i < xs.length; i++) {
+            // x is signed in the upper half, y gets its sign bit flipped to stay in order as the unsigned lower half
+            sortKeys[i] = (long) xs[i] << 32 | ((ys[i] ^ Integer.MIN_VALUE) & 0xffffffffL);
+        }
+        Arrays.sort(sortKeys);
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = (int) (sortKeys[i] >> 32);
+            ys[i] = (int) sortKeys[i] ^ Integer.MIN_VALUE;
+        }
+    }
+
+    public int getMinX() {
+        int min = Integer.MAX_VALUE;
+        for (int x : xs) min = Math.min(min, x);
+        return min;
+    }
+
+    public int getMinY() {
+        int min = Integer.MAX_VALUE;
+        for (int y : ys) min = Math.min(min, y);
+        return min;
+    }
+
+    public int getMaxX() {
+        int max = Integer.MIN_VALUE;
+        for (int x : xs) max = Math.max(max, x);
+        return max;
+    }
+
+    public int getMaxY() {
+        int max = Integer.MIN_VALUE;
+        for (int y : ys) max = Math.max(max, y);
+        return max;
+    }
+
+    public List<Coordinate> toCoordinates() {
+        List<Coordinate> coordinates = new ArrayList<>(xs.length);
+        for (int i = 0; i < xs.length; i++) {
+            coordinates.add(new Coordinate(xs[i], ys[i]));
+        }
+        return coordinates;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < xs.length; i++) {
+            if (i > 0) builder.append(", ");
+            builder.append('(').append(xs[i]).append(", ").append(ys[i]).append(')');
+        }
+        return builder.append(']').toString();
+    }
+}
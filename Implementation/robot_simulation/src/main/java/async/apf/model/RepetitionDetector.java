@@ -0,0 +1,181 @@
+package async.apf.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Remembers every configuration a simulation has been in, as a 64-bit
+ * Zobrist-style hash: the XOR of one random key per occupied cell. A move
+ * updates the hash with two XORs, and the hashes are kept in a primitive set.
+ * <p>
+ * In exact mode every configuration is also appended to a log file as its
+ * sorted packed cells. A hash that was seen before is then only reported as
+ * a repetition after the log confirms an identical configuration.
+ */
+public class RepetitionDetector implements AutoCloseable {
+    private final LongOpenHashSet seenHashes = new LongOpenHashSet();
+    private long currentHash = 0;
+
+    private final boolean exact;
+    private final int robotCount;
+    private FileChannel log;
+    private Path logPath;
+    private ByteBuffer writeBuffer;
+    private long hashCollisions = 0;
+
+    public RepetitionDetector(List<Coordinate> startingConfiguration, boolean exact) {
+        this.exact = exact;
+        this.robotCount = startingConfiguration.size();
+        for (Coordinate coordinate : startingConfiguration) {
+            currentHash ^= cellKey(coordinate.pack());
+        }
+        if (exact) {
+            openLog();
+        }
+    }
+
+    private void openLog() {
+        try {
+            this.logPath = Files.createTempFile("apf-configurations", ".log");
+            this.logPath.toFile().deleteOnExit();
+            this.log = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Room for a few records, each is the hash followed by the cells
+            this.writeBuffer = ByteBuffer.allocateDirect(Math.max(1 << 16, 4 * recordSize()));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Could not create the configuration log!", e);
+        }
+    }
+
+    private int recordSize() {
+        return Long.BYTES * (1 + robotCount);
+    }
+
+    // SplitMix64 of the packed cell, so neighbouring cells get unrelated keys
+    private static long cellKey(long packedCell) {
+        long z = packedCell + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Records the configuration after a robot moved from one cell to another.
+     * @param configuration the configuration after the move, only read in exact mode
+     * @return true if the configuration was visited before
+     */
+    public boolean recordMove(int fromX, int fromY, int toX, int toY, PackedConfiguration configuration) {
+        currentHash ^= cellKey(Coordinate.pack(fromX, fromY)) ^ cellKey(Coordinate.pack(toX, toY));
+
+        // Moves still in flight after the simulation ended are only hashed
+        if (!exact || log == null) {
+            return !seenHashes.add(currentHash);
+        }
+
+        long[] cells = sortedCells(configuration);
+        if (!seenHashes.add(currentHash)) {
+            if (isLogged(currentHash, cells)) return true;
+            hashCollisions++;
+        }
+        append(currentHash, cells);
+        return false;
+    }
+
+    private static long[] sortedCells(PackedConfiguration configuration) {
+        long[] cells = new long[configuration.size()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = configuration.getPacked(i);
+        }
+        Arrays.sort(cells);
+        return cells;
+    }
+
+    private void append(long hash, long[] cells) {
+        try {
+            if (writeBuffer.remaining() < recordSize()) {
+                flush();
+            }
+            writeBuffer.putLong(hash);
+            for (long cell : cells) {
+                writeBuffer.putLong(cell);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Could not write the configuration log!", e);
+        }
+    }
+
+    private void flush() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            log.write(writeBuffer, log.size());
+        }
+        writeBuffer.clear();
+    }
+
+    /**
+     * Scans the whole log for an identical configuration, which takes time in
+     * the number of configurations visited. It is only done when a hash
+     * repeats: once for the repetition that ends a simulation, and for the
+     * very rare collisions of 64-bit hashes, so the log is not indexed.
+     */
+    private boolean isLogged(long hash, long[] cells) {
+        try {
+            flush();
+            ByteBuffer record = ByteBuffer.allocate(recordSize());
+            long size = log.size();
+            for (long position = 0; position < size; position += recordSize()) {
+                record.clear();
+                while (record.hasRemaining()) {
+                    log.read(record, position + record.position());
+                }
+                record.flip();
+                if (record.getLong() != hash) continue;
+
+                boolean identical = true;
+                for (int i = 0; i < cells.length && identical; i++) {
+                    identical = record.getLong() == cells[i];
+                }
+                if (identical) return true;
+            }
+            return false;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Could not read the configuration log!", e);
+        }
+    }
+
+    public boolean isExact() {
+        return exact;
+    }
+
+    public int getVisitedCount() {
+        return seenHashes.size();
+    }
+
+    // Hashes that repeated without the configuration repeating, exact mode only
+    public long getHashCollisions() {
+        return hashCollisions;
+    }
+
+    @Override
+    public void close() {
+        if (log == null) return;
+
+        try {
+            log.close();
+            Files.deleteIfExists(logPath);
+        }
+        catch (IOException e) {
+            System.err.println("Could not remove the configuration log: " + e.getMessage());
+        }
+        log = null;
+    }
+}
@@ -2,8 +2,8 @@ package async.apf.model;
 
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
 
 import async.apf.model.enums.Cardinal;
 import async.apf.model.enums.RobotEventType;
@@ -12,7 +12,10 @@ import async.apf.model.events.RobotEvent;
 
 public class Robot {
     private final EventEmitter globalEventEmitter;
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    // Runs the cycles, owned by the simulation. Null when the robot is driven synchronously
+    private final Executor executor;
+    // A lock instead of a monitor, so cycles do not pin the carrier of a virtual thread
+    private final ReentrantLock cycleLock = new ReentrantLock();
 
     private boolean active = false;
     private int currentId;
@@ -24,32 +27,73 @@ public class Robot {
     private RobotOrientation currentConfiguration;
     private ConfigurationOrientation targetPattern;
 
+    // Scratch copy of the configuration for C9, reused between cycles
+    private PackedConfiguration relocated;
+
     private int currentPhase;
     private Cardinal nextMove = null;
     private int currentDelay;
 
     public Robot(EventEmitter globalEventEmitter) {
+        this(globalEventEmitter, null);
+    }
+
+    public Robot(EventEmitter globalEventEmitter, Executor executor) {
         this.globalEventEmitter = globalEventEmitter;
+        this.executor = executor;
     }
 
-    public void activate(int currentId, int currentDelay) {
+    // Returns true if a new cycle was started, false if the robot was still busy
+    public boolean activate(int currentId, int currentDelay) {
         if (this.active) {
             this.globalEventEmitter.emitEvent(new RobotEvent(RobotEventType.ACTIVE, this.currentPhase, this.currentId));
-            return;
+            return false;
         }
         this.active = true;
         this.currentId = currentId;
         this.currentDelay = currentDelay;
-        this.executorService.submit(this::cycleLoop);
+        this.executor.execute(this::cycleLoop);
+        return true;
+    }
+
+    // The target orientation is shared with the other robots and must not be modified
+    public void supplyConfigurations(RobotOrientation currentConfiguration, ConfigurationOrientation targetPattern) {
+        cycleLock.lock();
+        try {
+            this.currentConfiguration = currentConfiguration;
+            this.targetPattern        = targetPattern;
+            // Synchronous callers (e.g. the discrete-event engine) never wait on the latch
+            CountDownLatch latch = this.lookLatch;
+            if (latch != null) latch.countDown();
+        }
+        finally {
+            cycleLock.unlock();
+        }
+    }
+
+    // Marks the start of a cycle when the robot is driven without its own executor
+    void beginCycle(int currentId) {
+        this.active = true;
+        this.currentId = currentId;
     }
 
-    public synchronized void supplyConfigurations(List<Coordinate> relativeConfiguration, List<Coordinate> targetPattern) {
-        this.currentConfiguration = OrientationHelper.orientRobotAndConfiguration(relativeConfiguration);
-        this.targetPattern        = OrientationHelper.orientConfiguration(targetPattern);
-        this.lookLatch.countDown();
+    int getCurrentPhase() {
+        return currentPhase;
     }
 
-    private synchronized void cycleLoop() {
+    /**
+     * The move decided in the last COMPUTE, rotated back to the global frame,
+     * or null if the robot stays put
+     */
+    Cardinal getGlobalMove() {
+        if (this.nextMove == null) return null;
+        return transformMoveBackToGlobalOrientation();
+    }
+
+    private void cycleLoop() {
+        cycleLock.lock();
+        // Every cycle ends in IDLE, otherwise the scheduler would count the robot as busy forever
+        boolean idle = false;
         try {
             // LOOK
             this.lookLatch = new CountDownLatch(1);
@@ -60,7 +104,9 @@ public class Robot {
 
             // COMPUTE
             this.globalEventEmitter.emitEvent(new RobotEvent(RobotEventType.COMPUTE, this.currentPhase, this.currentId));
-            computeNextMove();
+            if (!computeNextMove()) {
+                this.globalEventEmitter.emitEvent(new RobotEvent(RobotEventType.PATTERN_COMPLETE, this.currentPhase, this.currentId));
+            }
             awaitArtificialDelay();
 
             // MOVE
@@ -68,10 +114,27 @@ public class Robot {
             awaitArtificialDelay();
 
             resetState();
+            idle = true;
             this.globalEventEmitter.emitEvent(new RobotEvent(RobotEventType.IDLE, this.currentPhase, this.currentId));
         }
+        catch (InterruptedException ex) {
+            // The simulation was shut down while this cycle was in flight, nobody waits for the robot
+            idle = true;
+            Thread.currentThread().interrupt();
+        }
         catch (Exception ex) {
-            System.err.println(ex.getMessage());
+            ex.printStackTrace();
+        }
+        finally {
+            try {
+                if (!idle) {
+                    resetState();
+                    this.globalEventEmitter.emitEvent(new RobotEvent(RobotEventType.IDLE, this.currentPhase, this.currentId));
+                }
+            }
+            finally {
+                cycleLock.unlock();
+            }
         }
     }
 
@@ -147,277 +210,200 @@ public class Robot {
         return realMovement;
     }
 
-    private void resetState() {
+    void resetState() {
         this.nextMove = null;
         this.currentConfiguration = null;
         this.active = false;
-        this.c0 = null;
-        this.c1 = null;
-        this.c2 = null;
-        this.c3 = null;
-        this.c4 = null;
-        this.c5 = null;
-        this.c6 = null;
-        this.c7 = null;
-        this.c8 = null;
-        this.c9 = null;
-        this.c10 = null;
     }
 
-    private void computeNextMove() {
-        if (checkForPhaseI()) {
-            doPhaseI();
-        }
-        else if (checkForPhaseII()) {
-            doPhaseII();
-        }
-        else if (checkForPhaseIII()) {
-            doPhaseIII();
-        }
-        else if (checkForPhaseIV()) {
-            doPhaseIV();
-        }
-        else if (checkForPhaseV()) {
-            doPhaseV();
-        }
-        else if (checkForPhaseVI()) {
-            doPhaseVI();
-        }
-        else if (checkForPhaseVII()) {
-            doPhaseVII();
-        }
-        else {
-            this.globalEventEmitter.emitEvent(new RobotEvent(RobotEventType.PATTERN_COMPLETE, this.currentPhase, this.currentId));
+    /**
+     * Decides the next move based on the last LOOK.
+     * Returns false if no phase applies, i.e. the pattern is complete
+     */
+    boolean computeNextMove() {
+        switch (selectPhase()) {
+            case 1 -> doPhaseI();
+            case 2 -> doPhaseII();
+            case 3 -> doPhaseIII();
+            case 4 -> doPhaseIV();
+            case 5 -> doPhaseV();
+            case 6 -> doPhaseVI();
+            case 7 -> doPhaseVII();
+            default -> {
+                return false;
+            }
         }
+        return true;
     }
 
     // #region CONDITION CHECKS
-    // C = C_target
+    // Bits of the condition mask, one for each of C0 to C8
 
-    private Boolean c0;
-    private void  checkC0() {
-        c0 = currentConfiguration.equals(targetPattern);
-    }
     /**
      * C = C_target
      */
-    private boolean getC0() {
-        if (c0 == null) checkC0();
-        return c0;
-    }
-
-    private Boolean c1;
-    // C' = C'_target
-    private void checkC1() {
-        c1 = currentConfiguration.primeEquals(targetPattern);
-    }
+    private static final int C0 = 1;
     /**
      * C' = C'_target
      */
-    private boolean getC1() {
-        if (c1 == null) checkC1();
-        return c1;
-    }
-
-    private Boolean c2;
-    // C'' = C''_target
-    private void checkC2() {
-        c2 = currentConfiguration.primePrimeEquals(targetPattern);
-    }
+    private static final int C1 = 1 << 1;
     /**
      * C'' = C''_target
      */
-    private boolean getC2() {
-        if (c2 == null) checkC2();
-        return c2;
-    }
-
-    private Boolean c3;
-    // x-coordinate of the tail = x-coordinate of t_target
-    private void checkC3() {
-        c3 = currentConfiguration.getTailPosition().getX() == targetPattern.getTailPosition().getX();
-    }
+    private static final int C2 = 1 << 2;
     /**
      * x-coordinate of the tail = x-coordinate of t_target
      */
-    private boolean getC3() {
-        if (c3 == null) checkC3();
-        return c3;
-    }
-
-    private Boolean c4;
-    // There is neither any robot except the tail nor any target positions
-    // on or above H_t, where H_t is the horizontal line containing the tail
-    private void checkC4() {
-        Coordinate tailCoordinate = currentConfiguration.getTailPosition();
-        int yHt = tailCoordinate.getY();
-
-        // Look for other robots
-        for (Coordinate robotCoordinate : currentConfiguration.getCoordinates()) {
-            if (robotCoordinate.getY() < yHt ||
-                robotCoordinate.equals(tailCoordinate))
-                continue;
-
-            c4 = false;
-            return;
-        }
-        // Look for target positions
-        for (Coordinate targetCoordinate : targetPattern.getCoordinates()) {
-            if (targetCoordinate.getY() < yHt)
-                continue;
-
-            c4 = false;
-            return;
-        }
-
-        c4 = true;
-    }
+    private static final int C3 = 1 << 3;
     /**
      * There is neither any robot except the tail nor any target positions
      * on or above H_t, where H_t is the horizontal line containing the tail
      */
-    private boolean getC4() {
-        if (c4 == null) checkC4();
-        return c4;
-    }
-
-    private Boolean c5;
-    // y-coordinate of the tail is on an odd line (coordinate is even)
-    private void checkC5() {
-        c5 = currentConfiguration.getTailPosition().getY() % 2 == 0;
-    }
+    private static final int C4 = 1 << 4;
     /**
-     * y-coordinate of the tail is odd
+     * y-coordinate of the tail is on an odd line (coordinate is even)
      */
-    private boolean getC5() {
-        if (c5 == null) checkC5();
-        return c5;
-    }
-
-    private Boolean c6;
-    // SER of C is not a square
-    private void checkC6() {
-        c6 = currentConfiguration.getWidth() != currentConfiguration.getHeight();
-    }
+    private static final int C5 = 1 << 5;
     /**
      * SER of C is not a square
      */
-    private boolean getC6() {
-        if (c6 == null) checkC6();
-        return c6;
-    }
-
-    private Boolean c7;
-    // There is neither any robot except the tail nor any target positions
-    // on or at the right of V_t, where V_t is the vertical line containing the tail
-    private void checkC7() {
-        Coordinate tailCoordinate = currentConfiguration.getTailPosition();
-        int xVt = tailCoordinate.getX();
-
-        // Look for other robots
-        for (Coordinate robotCoordinate : currentConfiguration.getCoordinates()) {
-            if (robotCoordinate.getX() < xVt ||
-                robotCoordinate.equals(tailCoordinate))
-                continue;
-
-            c7 = false;
-            return;
-        }
-        // Look for target positions
-        for (Coordinate targetCoordinate : targetPattern.getCoordinates()) {
-            if (targetCoordinate.getX() < xVt)
-                continue;
-
-            c7 = false;
-            return;
-        }
-
-        c7 = true;
-    }
+    private static final int C6 = 1 << 6;
     /**
      * There is neither any robot except the tail nor any target positions
      * on or at the right of V_t, where V_t is the vertical line containing the tail
      */
-    private boolean getC7() {
-        if (c7 == null) checkC7();
-        return c7;
+    private static final int C7 = 1 << 7;
+    /**
+     * The head is at origin
+     */
+    private static final int C8 = 1 << 8;
+
+    // The phase to run for every combination of C0 to C8, 0 if the pattern is complete
+    private static final byte[] PHASE_TABLE = new byte[1 << 9];
+    static {
+        for (int conditions = 0; conditions < PHASE_TABLE.length; conditions++) {
+            // Same order of precedence as the phases are numbered
+            if      (checkForPhaseI(conditions))   PHASE_TABLE[conditions] = 1;
+            else if (checkForPhaseII(conditions))  PHASE_TABLE[conditions] = 2;
+            else if (checkForPhaseIII(conditions)) PHASE_TABLE[conditions] = 3;
+            else if (checkForPhaseIV(conditions))  PHASE_TABLE[conditions] = 4;
+            else if (checkForPhaseV(conditions))   PHASE_TABLE[conditions] = 5;
+            else if (checkForPhaseVI(conditions))  PHASE_TABLE[conditions] = 6;
+            else if (checkForPhaseVII(conditions)) PHASE_TABLE[conditions] = 7;
+        }
     }
 
-    private Boolean c8;
-    // The head is at origin
-    private void checkC8() {
-        c8 = currentConfiguration.getHeadPosition().getX() == 0 &&
-             currentConfiguration.getHeadPosition().getY() == 0;
+    // The phase the last LOOK calls for, 0 if the pattern is complete
+    int selectPhase() {
+        return PHASE_TABLE[evaluateConditions()];
     }
+
+    private static boolean has(int conditions, int condition) {
+        return (conditions & condition) != 0;
+    }
+
     /**
-     * The head is at origin
+     * Evaluates C0 to C8 on the last LOOK, with a single pass over the robots
+     * for C4 and C7
      */
-    private boolean getC8() {
-        if (c8 == null) checkC8();
-        return c8;
-    }
-
-    private Boolean c9;
-    // If the tail and the head are relocated respectively at C and A, then
-    // the new configuration remains asymmetric
-    private void checkC9() {
-        List<Coordinate> copy = OrientationHelper.copyCoordinates(currentConfiguration.getCoordinates());
-        copy.getFirst().setX(0);
-        copy.getFirst().setY(0);
-        copy.getLast().setX(currentConfiguration.getWidth() - 1);
-        copy.getLast().setY(currentConfiguration.getHeight() - 1);
-        c9 = !OrientationHelper.isSymmetric(copy);
+    private int evaluateConditions() {
+        int conditions = 0;
+
+        // C = C_target implies C' = C'_target, which implies C'' = C''_target
+        if (currentConfiguration.primePrimeEquals(targetPattern)) {
+            conditions |= C2;
+            if (currentConfiguration.primeEquals(targetPattern)) {
+                conditions |= C1;
+                if (currentConfiguration.equals(targetPattern)) {
+                    conditions |= C0;
+                }
+            }
+        }
+
+        Coordinate tail = currentConfiguration.getTailPosition();
+        Coordinate head = currentConfiguration.getHeadPosition();
+        if (tail.getX() == targetPattern.getTailPosition().getX()) conditions |= C3;
+        if (tail.getY() % 2 == 0)                                  conditions |= C5;
+        if (currentConfiguration.getWidth() != currentConfiguration.getHeight()) conditions |= C6;
+        if (head.getX() == 0 && head.getY() == 0)                  conditions |= C8;
+
+        // Look for target positions, then for other robots
+        boolean c4 = targetPattern.getMaxY() < tail.getY();
+        boolean c7 = targetPattern.getMaxX() < tail.getX();
+        PackedConfiguration robots = currentConfiguration.getPackedCoordinates();
+        int tailIndex = robots.size() - 1;
+        for (int i = 0; i < tailIndex && (c4 || c7); i++) {
+            // The tail is the last robot, so only a robot on the same cell can match it
+            if (robots.getX(i) == tail.getX() && robots.getY(i) == tail.getY()) continue;
+            if (robots.getY(i) >= tail.getY()) c4 = false;
+            if (robots.getX(i) >= tail.getX()) c7 = false;
+        }
+        if (c4) conditions |= C4;
+        if (c7) conditions |= C7;
+
+        return conditions;
     }
+
     /**
      * If the tail and the head are relocated respectively at C and A, then
      * the new configuration remains asymmetric
      */
-    private boolean getC9() {
-        if (c9 == null) checkC9();
-        return c9;
-    }
-
-    private Boolean c10;
-    // C′ has a symmetry with respect to a vertical line
-    private void checkC10() {
-        List<Coordinate> primeCoordinates = currentConfiguration.getCoordinates()
-            .subList(0, currentConfiguration.getCoordinates().size() - 1);
-        int primeMaxX = primeCoordinates
-            .stream()
-            .mapToInt(Coordinate::getX)
-            .max()
-            .orElseThrow();
-        for (Coordinate position : primeCoordinates) {
-            Coordinate mirrored = new Coordinate(primeMaxX - position.getX(), position.getY());
-            if (!currentConfiguration.getCoordinates().contains(mirrored)) {
-                c10 = false;
-                return;
-            }
-        }
-        c10 = true;
+    private boolean checkC9() {
+        PackedConfiguration robots = currentConfiguration.getPackedCoordinates();
+        if (relocated == null || relocated.size() != robots.size()) {
+            relocated = new PackedConfiguration(robots.size());
+        }
+        robots.copyInto(relocated);
+
+        Coordinate head = currentConfiguration.getHeadPosition();
+        Coordinate tail = currentConfiguration.getTailPosition();
+        int cornerX = currentConfiguration.getWidth() - 1;
+        int cornerY = currentConfiguration.getHeight() - 1;
+        relocated.set(0, 0, 0);
+        relocated.set(relocated.size() - 1, cornerX, cornerY);
+
+        // The current cells without the old head and tail, plus the new ones
+        CoordinateMembership relocatedCells = (x, y) ->
+            (x == 0 && y == 0) ||
+            (x == cornerX && y == cornerY) ||
+            (currentConfiguration.contains(x, y) &&
+             !(x == head.getX() && y == head.getY()) &&
+             !(x == tail.getX() && y == tail.getY()));
+        return !OrientationHelper.isSymmetric(relocated, relocatedCells);
     }
+
     /**
      * C′ has a symmetry with respect to a vertical line
      */
-    private boolean getC10() {
-        if (c10 == null) checkC10();
-        return c10;
+    private boolean checkC10() {
+        PackedConfiguration robots = currentConfiguration.getPackedCoordinates();
+        int primeCount = robots.size() - 1;
+        int primeMaxX = Integer.MIN_VALUE;
+        for (int i = 0; i < primeCount; i++) {
+            primeMaxX = Math.max(primeMaxX, robots.getX(i));
+        }
+        for (int i = 0; i < primeCount; i++) {
+            if (!currentConfiguration.contains(primeMaxX - robots.getX(i), robots.getY(i))) {
+                return false;
+            }
+        }
+        return true;
     }
     // #endregion Initialization
 
     // #region PHASE LOGIC
     ///////////////////////// PHASE I /////////////////////////
-    private boolean checkForPhaseI() {
+    private static boolean checkForPhaseI(int conditions) {
         return
         !(
-            getC4() &&
-            getC5() &&
-            getC6()
+            has(conditions, C4) &&
+            has(conditions, C5) &&
+            has(conditions, C6)
         )
         &&
         !(
-            getC1() &&
-            getC3()
+            has(conditions, C1) &&
+            has(conditions, C3)
         );
     }
     /**
@@ -433,22 +419,22 @@ public class Robot {
     }
 
     ///////////////////////// PHASE II /////////////////////////
-    private boolean checkForPhaseII() {
+    private static boolean checkForPhaseII(int conditions) {
         return 
         (
-            getC4() &&
-            getC5() &&
-            getC6() &&
-            !getC8()
+            has(conditions, C4) &&
+            has(conditions, C5) &&
+            has(conditions, C6) &&
+            !has(conditions, C8)
         )
         &&
         (
             (
-                getC2() &&
-                !getC3()
+                has(conditions, C2) &&
+                !has(conditions, C3)
             )
             ||
-            !getC2()
+            !has(conditions, C2)
         );
     }
     /**
@@ -462,14 +448,14 @@ public class Robot {
     }
 
     ///////////////////////// PHASE III /////////////////////////
-    private boolean checkForPhaseIII() {
+    private static boolean checkForPhaseIII(int conditions) {
         return
-        getC4() &&
-        getC5() &&
-        getC6() &&
-        getC8() &&
-        !getC2() &&
-        !getC7();
+        has(conditions, C4) &&
+        has(conditions, C5) &&
+        has(conditions, C6) &&
+        has(conditions, C8) &&
+        !has(conditions, C2) &&
+        !has(conditions, C7);
     }
     /**
      * TAIL robot moves rightwards to reach a vertical line such that neither the 
@@ -479,7 +465,7 @@ public class Robot {
     private void doPhaseIII() {
         this.currentPhase = 3;
         if (currentConfiguration.getTailPosition().equals(currentConfiguration.getSelfPosition())) {
-            if (getC10()) {
+            if (checkC10()) {
                 // TAIL moves left or upwards in accordance with
                 // m > n + 1 or m = n + 1
                 if (currentConfiguration.getHeight() > currentConfiguration.getWidth() + 1) {
@@ -490,7 +476,7 @@ public class Robot {
                 }
             }
             else {
-                if (getC9()) {
+                if (checkC9()) {
                     // TAIL moves right or upwards in accordance with
                     // m > n + 1 or m = n + 1
                     // (dimension of the current SER is m × n with m ≥ n)
@@ -510,14 +496,14 @@ public class Robot {
     }
 
     ///////////////////////// PHASE IV /////////////////////////
-    private boolean checkForPhaseIV() {
+    private static boolean checkForPhaseIV(int conditions) {
         return
-        getC4() &&
-        getC5() &&
-        getC6() &&
-        getC7() &&
-        getC8() &&
-        !getC2();
+        has(conditions, C4) &&
+        has(conditions, C5) &&
+        has(conditions, C6) &&
+        has(conditions, C7) &&
+        has(conditions, C8) &&
+        !has(conditions, C2);
     }
     /**
      * Inner robots carefully move to take their respective target position 
@@ -547,14 +533,14 @@ public class Robot {
     }
 
     ///////////////////////// PHASE V /////////////////////////
-    private boolean checkForPhaseV() {
+    private static boolean checkForPhaseV(int conditions) {
         return
-        getC2() &&
-        getC4() &&
-        getC5() &&
-        getC6() &&
-        getC8() &&
-        !getC3();
+        has(conditions, C2) &&
+        has(conditions, C4) &&
+        has(conditions, C5) &&
+        has(conditions, C6) &&
+        has(conditions, C8) &&
+        !has(conditions, C3);
     }
     /**
      * TAIL moves horizontally to make C3 true
@@ -562,7 +548,7 @@ public class Robot {
     private void doPhaseV() {
         this.currentPhase = 5;
         if (currentConfiguration.getTailPosition().equals(currentConfiguration.getSelfPosition())) {
-            if (getC10()) {
+            if (checkC10()) {
                 int maxPrimeX = Integer.MIN_VALUE;
                 
                 // Iterate through the list except the last element
@@ -601,14 +587,14 @@ public class Robot {
     }
 
     ///////////////////////// PHASE VI /////////////////////////
-    private boolean checkForPhaseVI() {
+    private static boolean checkForPhaseVI(int conditions) {
         return
-        !getC1() &&
-        getC2() &&
-        getC3() &&
-        getC4() &&
-        getC5() &&
-        getC6();
+        !has(conditions, C1) &&
+        has(conditions, C2) &&
+        has(conditions, C3) &&
+        has(conditions, C4) &&
+        has(conditions, C5) &&
+        has(conditions, C6);
     }
     /**
      * HEAD moves horizontally to reach h_target
@@ -623,11 +609,11 @@ public class Robot {
     }
 
     ///////////////////////// PHASE VII /////////////////////////
-    private boolean checkForPhaseVII() {
+    private static boolean checkForPhaseVII(int conditions) {
         return
-        !getC0() &&
-        getC1() &&
-        getC3();
+        !has(conditions, C0) &&
+        has(conditions, C1) &&
+        has(conditions, C3);
     }
     /**
      * TAIL moves vertically to reach t_target
@@ -750,12 +736,7 @@ public class Robot {
         else {
             endIndex -= 1;
         }
-        for (int i = startIndex; i <= endIndex; i++) {
-            if (Boolean.TRUE.equals(currentConfiguration.getBinaryRepresentation().get(i))) {
-                return false;
-            }
-        }
-        return true;
+        return !currentConfiguration.anySetInRange(startIndex, endIndex);
     }
 
     private boolean isRiAndTiOnSameLine(Coordinate ri, Coordinate ti) {
@@ -4,7 +4,7 @@ public class RobotOrientation extends ConfigurationOrientation {
     private final Coordinate selfPosition;
 
     public RobotOrientation(ConfigurationOrientation config, Coordinate selfPosition) {
-        super(config.getBinaryRepresentation(), config.getOrientation(), config.isXMirrored(), config.getWidth(), config.getHeight());
+        super(config);
         this.selfPosition = selfPosition;
     }
 
@@ -13,6 +13,19 @@ public class SER {
         this.maxY = maxY;
     }
 
+    public int getMinX() {
+        return minX;
+    }
+    public int getMinY() {
+        return minY;
+    }
+    public int getMaxX() {
+        return maxX;
+    }
+    public int getMaxY() {
+        return maxY;
+    }
+
     public int getWidth() {
         return Math.min(maxX - minX + 1, maxY - minY + 1);
     }
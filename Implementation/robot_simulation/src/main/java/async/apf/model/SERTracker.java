@@ -0,0 +1,136 @@
+package async.apf.model;
+
+import java.util.List;
+
+/**
+ * Smallest enclosing rectangle of a configuration, kept up to date move by
+ * move. Every row and column counts the robots on it, so a move only has to
+ * look past a bound when it left that bound's line empty. For single-step
+ * moves that is O(1) amortized.
+ */
+public class SERTracker {
+    // Robots per column and per row, index 0 is the column/row at the offset
+    private int[] columnCounts;
+    private int[] rowCounts;
+    private int columnOffset;
+    private int rowOffset;
+
+    private int minX;
+    private int minY;
+    private int maxX;
+    private int maxY;
+
+    public SERTracker(List<Coordinate> configuration) {
+        if (configuration.isEmpty()) {
+            throw new IllegalArgumentException("Configuration cannot be empty!");
+        }
+        minX = Integer.MAX_VALUE;
+        minY = Integer.MAX_VALUE;
+        maxX = Integer.MIN_VALUE;
+        maxY = Integer.MIN_VALUE;
+        for (Coordinate coordinate : configuration) {
+            minX = Math.min(minX, coordinate.getX());
+            minY = Math.min(minY, coordinate.getY());
+            maxX = Math.max(maxX, coordinate.getX());
+            maxY = Math.max(maxY, coordinate.getY());
+        }
+        // Leave room on every side, robots tend to spread out before they gather
+        int columns = maxX - minX + 1;
+        int rows = maxY - minY + 1;
+        columnOffset = minX - columns;
+        rowOffset = minY - rows;
+        columnCounts = new int[3 * columns];
+        rowCounts = new int[3 * rows];
+        for (Coordinate coordinate : configuration) {
+            columnCounts[coordinate.getX() - columnOffset]++;
+            rowCounts[coordinate.getY() - rowOffset]++;
+        }
+    }
+
+    void move(int fromX, int fromY, int toX, int toY) {
+        if (fromX != toX) {
+            ensureColumn(toX);
+            columnCounts[fromX - columnOffset]--;
+            columnCounts[toX - columnOffset]++;
+            minX = Math.min(minX, toX);
+            maxX = Math.max(maxX, toX);
+            while (columnCounts[minX - columnOffset] == 0) minX++;
+            while (columnCounts[maxX - columnOffset] == 0) maxX--;
+        }
+        if (fromY != toY) {
+            ensureRow(toY);
+            rowCounts[fromY - rowOffset]--;
+            rowCounts[toY - rowOffset]++;
+            minY = Math.min(minY, toY);
+            maxY = Math.max(maxY, toY);
+            while (rowCounts[minY - rowOffset] == 0) minY++;
+            while (rowCounts[maxY - rowOffset] == 0) maxY--;
+        }
+    }
+
+    private void ensureColumn(int x) {
+        while (x - columnOffset < 0 || x - columnOffset >= columnCounts.length) {
+            growColumns();
+        }
+    }
+
+    private void growColumns() {
+        int grown = columnCounts.length * 2;
+        int[] counts = new int[grown];
+        // Centre the old counts, so there is room on both sides again
+        int shift = (grown - columnCounts.length) / 2;
+        System.arraycopy(columnCounts, 0, counts, shift, columnCounts.length);
+        columnCounts = counts;
+        columnOffset -= shift;
+    }
+
+    private void ensureRow(int y) {
+        while (y - rowOffset < 0 || y - rowOffset >= rowCounts.length) {
+            growRows();
+        }
+    }
+
+    private void growRows() {
+        int grown = rowCounts.length * 2;
+        int[] counts = new int[grown];
+        int shift = (grown - rowCounts.length) / 2;
+        System.arraycopy(rowCounts, 0, counts, shift, rowCounts.length);
+        rowCounts = counts;
+        rowOffset -= shift;
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getMaxX() {
+        return maxX;
+    }
+
+    public int getMaxY() {
+        return maxY;
+    }
+
+    // Shorter side of the rectangle, like SER.getWidth()
+    public int getWidth() {
+        return Math.min(maxX - minX + 1, maxY - minY + 1);
+    }
+
+    // Longer side of the rectangle, like SER.getHeight()
+    public int getHeight() {
+        return Math.max(maxX - minX + 1, maxY - minY + 1);
+    }
+
+    public SER toSER() {
+        return new SER(minX, minY, maxX, maxY);
+    }
+
+    @Override
+    public String toString() {
+        return "SER[" + minX + "," + minY + " - " + maxX + "," + maxY + "]";
+    }
+}
@@ -1,216 +1,131 @@
 package async.apf.model;
 
-import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
-import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import async.apf.interfaces.IEvent;
 import async.apf.interfaces.IEventListener;
 import async.apf.model.enums.RobotEventType;
+import async.apf.model.enums.RobotExecutionMode;
 import async.apf.model.enums.SimulationEventType;
 import async.apf.model.events.EventEmitter;
 import async.apf.model.events.RobotEvent;
-import async.apf.model.events.SimulationEvent;
 import async.apf.model.exceptions.InvalidInputException;
 
-public class Simulation implements IEventListener {
-    private final AsyncScheduler scheduler;
-    private final EventEmitter globalEventEmitter;
-
-    private final List<Coordinate> currentConfiguration;
-    private final List<Coordinate> targetPattern;
-
-    private final List<Robot> robots;
-
-    private boolean hasBegun = false;
-    private volatile boolean isPaused = false;
-    private volatile boolean completed = false;
-    private volatile boolean failed = false;
-
+public class Simulation extends AbstractSimulation implements IEventListener {
     private final Thread simulationThread;
 
-    private int delay;
-
-    private final SimulationStatistics statistics;
-
-    private final Set<Set<Coordinate>> previousConfigurations = new HashSet<>();
+    // Executors running the robot cycles, shut down together with the simulation
+    private final List<ExecutorService> robotExecutors = new ArrayList<>();
 
     // Constructor to initialize the simulation with starting configuration, target pattern, and robots
     public Simulation(EventEmitter globalEventEmitter, List<Coordinate> startingConfiguration, List<Coordinate> targetPattern) throws InvalidInputException {
-        this.globalEventEmitter = globalEventEmitter;
-        this.currentConfiguration = startingConfiguration;
-        this.targetPattern = targetPattern;
+        this(globalEventEmitter, startingConfiguration, targetPattern, null);
+    }
 
-        int robotCount = startingConfiguration.size();
+    public Simulation(EventEmitter globalEventEmitter, List<Coordinate> startingConfiguration, List<Coordinate> targetPattern, AsyncScheduler scheduler) throws InvalidInputException {
+        this(globalEventEmitter, startingConfiguration, targetPattern, scheduler, RobotExecutionMode.VIRTUAL_THREADS);
+    }
 
-        if (robotCount != targetPattern.size()) {
-            throw new InvalidInputException();
-        }
-        
-        this.scheduler = new AsyncScheduler(robotCount);
-        List<SER> SERs = getSER();
-        this.statistics = new SimulationStatistics(
-            robotCount,
-            Math.max(SERs.get(0).getWidth(),  SERs.get(1).getWidth() ),
-            Math.max(SERs.get(0).getHeight(), SERs.get(1).getHeight())
-        );
+    public Simulation(EventEmitter globalEventEmitter, List<Coordinate> startingConfiguration, List<Coordinate> targetPattern, AsyncScheduler scheduler, RobotExecutionMode executionMode) throws InvalidInputException {
+        super(globalEventEmitter, startingConfiguration, targetPattern, scheduler);
 
-        this.robots = new ArrayList<>();
-        for (int i = 0; i < robotCount; i++) {
-            this.robots.add(new Robot(globalEventEmitter));
-        }
+        createRobots(startingConfiguration.size(), executionMode);
 
         this.simulationThread = new Thread(() -> {
-            Random random = new Random();
-            while (!completed && !failed) {
-                synchronized (this) {
-                    if (this.isPaused) {
-                        try {
-                            this.wait(); // Wait until notified
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                        }
-                    }
-                }
+            // Derived from the scheduler's seed so the desync is reproducible as well
+            Random random = new Random(~this.scheduler.getSeed());
+            while (!completed && !failed && !stopped) {
+                awaitResume();
 
-                int randomIndex = this.scheduler.pickNext();
-                Robot pickedRobot = this.robots.get(randomIndex);
                 try {
+                    // Park until a robot finishes its cycle instead of spinning on busy ones
+                    this.scheduler.awaitIdleRobot();
+                    if (completed || failed || stopped) break;
+
+                    int randomIndex = this.scheduler.pickNext();
+                    Robot pickedRobot = this.robots.get(randomIndex);
                     if (this.delay > 0) {
                         int desync = random.nextInt(20);
                         Thread.sleep(desync);
                     }
-                    pickedRobot.activate(randomIndex, this.delay);
-                    this.statistics.incrementActivationCounter(randomIndex);
+                    this.scheduler.markBusy(randomIndex);
+                    if (pickedRobot.activate(randomIndex, this.delay)) {
+                        this.scheduler.recordCycle(randomIndex);
+                        synchronized (this.stateLock) {
+                            this.statistics.incrementActivationCounter(randomIndex);
+                        }
+                    }
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
                 }
                 catch (Exception ex) {
-                    System.err.println(ex.getMessage());
+                    ex.printStackTrace();
                 }
             }
-            if (completed)
-                globalEventEmitter.emitEvent(new SimulationEvent(SimulationEventType.SIMULATION_END));
-            if (failed)
-                globalEventEmitter.emitEvent(new SimulationEvent(SimulationEventType.SIMULATION_FAIL));
+            emitOutcome();
+            shutdownRobotExecutors(false);
         });
     }
 
-    private List<SER> getSER() {
-        int minSX = Integer.MAX_VALUE;
-        int minSY = Integer.MAX_VALUE;
-        int maxSX = Integer.MIN_VALUE;
-        int maxSY = Integer.MIN_VALUE;
-        int minTX = Integer.MAX_VALUE;
-        int minTY = Integer.MAX_VALUE;
-        int maxTX = Integer.MIN_VALUE;
-        int maxTY = Integer.MIN_VALUE;
-        // Iterate over the points to find the min and max x, y values
-        for (int i = 0; i < this.currentConfiguration.size(); i++) {
-            int sx = currentConfiguration.get(i).getX();
-            int sy = currentConfiguration.get(i).getY();
-            minSX = Math.min(minSX, sx);
-            minSY = Math.min(minSY, sy);
-            maxSX = Math.max(maxSX, sx);
-            maxSY = Math.max(maxSY, sy);
-            int tx = targetPattern.get(i).getX();
-            int ty = targetPattern.get(i).getY();
-            minTX = Math.min(minTX, tx);
-            minTY = Math.min(minTY, ty);
-            maxTX = Math.max(maxTX, tx);
-            maxTY = Math.max(maxTY, ty);
+    private void createRobots(int robotCount, RobotExecutionMode executionMode) {
+        switch (executionMode) {
+            case THREAD_PER_ROBOT -> {
+                for (int i = 0; i < robotCount; i++) {
+                    ExecutorService executor = Executors.newSingleThreadExecutor(daemonThreadFactory("robot-" + i));
+                    this.robotExecutors.add(executor);
+                    this.robots.add(new Robot(this.globalEventEmitter, executor));
+                }
+            }
+            case SHARED_POOL, VIRTUAL_THREADS -> {
+                ExecutorService executor = executionMode == RobotExecutionMode.SHARED_POOL
+                    ? Executors.newFixedThreadPool(
+                        Math.min(robotCount, Runtime.getRuntime().availableProcessors()),
+                        daemonThreadFactory("robot-pool"))
+                    : Executors.newVirtualThreadPerTaskExecutor();
+                this.robotExecutors.add(executor);
+                for (int i = 0; i < robotCount; i++) {
+                    this.robots.add(new Robot(this.globalEventEmitter, executor));
+                }
+            }
         }
+    }
 
-        List<SER> result = new ArrayList<>();
-        result.add(new SER(minSX, minSY, maxSX, maxSY));
-        result.add(new SER(minTX, minTY, maxTX, maxTY));
-        return result;
+    private static ThreadFactory daemonThreadFactory(String name) {
+        return Thread.ofPlatform().name(name).daemon(true).factory();
     }
 
-    public void setDelay(int delay) {
-        this.delay = delay;
+    // Cycles still in flight finish on their own unless the simulation is aborted
+    private void shutdownRobotExecutors(boolean abort) {
+        for (ExecutorService executor : this.robotExecutors) {
+            if (abort) {
+                executor.shutdownNow();
+            }
+            else {
+                executor.shutdown();
+            }
+        }
     }
 
+    @Override
     public void begin() {
         if (this.hasBegun) return;
 
-        this.hasBegun = true;
-        this.isPaused = false;
-        this.completed = false;
-        globalEventEmitter.emitEvent(new SimulationEvent(SimulationEventType.SIMULATION_START));
-        this.statistics.setStartTime(Instant.now());
+        markStarted();
         this.simulationThread.start();
     }
 
-    public synchronized void resume() {
-        this.isPaused = false;
-        this.notify(); // Notify the thread to resume
-    }
-
-    public void pause() {
-        this.isPaused = true;
-    }
-
-    public boolean hasBegun() {
-        return hasBegun;
-    }
-
-    public boolean isRunning() {
-        return hasBegun && !isPaused;
-    }
-
-    public boolean isPaused() {
-        return hasBegun && isPaused;
-    }
-    
-    public SimulationStatistics getStatistics() {
-        return statistics;
-    }
-    
-    public boolean isComplete() {
-        return completed;
-    }
-
-    private void fail() {
-        this.failed = true;
-    }
-
-    private List<Coordinate> translateConfigurationToRobotsCoordinate(Coordinate robotCoordinate) {
-        List<Coordinate> translatedCoordinates = new ArrayList<>();
-        for (Coordinate coordinate : this.currentConfiguration) {
-            translatedCoordinates.add(coordinate.translate(robotCoordinate));
-        }
-        return translatedCoordinates;
-    }
-
-    private void checkForCollisions() {
-        Set<Coordinate> seenPoints = new HashSet<>();
-        Set<Coordinate> collisions = new HashSet<>();
-        
-        for (Coordinate coordinate : this.currentConfiguration)
-            if (!seenPoints.add(coordinate))
-                // If add returns false, the current coordinate is a duplicate!
-                collisions.add(coordinate);
-        
-        if (!collisions.isEmpty())
-            for (Coordinate coordinate : collisions) {
-                System.err.println("Collision at " + coordinate.toString() + "!");
-                fail();
-            }
-    }
-
-    private void checkForRepetition() {
-        Set<Coordinate> newConfigSet = new HashSet<>(currentConfiguration);
-
-        for (Set<Coordinate> item : previousConfigurations) {
-            if (item.equals(newConfigSet)) {
-                fail();
-                return;
-            }
-        }
-
-        previousConfigurations.add(newConfigSet);
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        this.simulationThread.interrupt();
+        shutdownRobotExecutors(true);
     }
 
     @Override
@@ -228,54 +143,34 @@ public class Simulation implements IEventListener {
 
         switch (eventType) {
             case ACTIVE             -> handleActive();
-            case STAY_PUT           -> handleStayPut();
+            case STAY_PUT           -> handleStayPut(index);
             case LOOK               -> handleLookEvent(index, phase, currentX, currentY, pickedRobot);
             case COMPUTE            -> emitRobotEvent(index, SimulationEventType.ROBOT_COMPUTING, phase, currentX, currentY);
-            case MOVE_NORTH         -> handleMoveEvent(index, phase, currentX, currentY, 0, 1);
-            case MOVE_EAST          -> handleMoveEvent(index, phase, currentX, currentY, 1, 0);
-            case MOVE_SOUTH         -> handleMoveEvent(index, phase, currentX, currentY, 0, -1);
-            case MOVE_WEST          -> handleMoveEvent(index, phase, currentX, currentY, -1, 0);
-            case IDLE               -> emitRobotEvent(index, SimulationEventType.ROBOT_IDLE, phase, currentX, currentY);
+            case MOVE_NORTH         -> handleMove(index, phase, currentX, currentY, 0, 1);
+            case MOVE_EAST          -> handleMove(index, phase, currentX, currentY, 1, 0);
+            case MOVE_SOUTH         -> handleMove(index, phase, currentX, currentY, 0, -1);
+            case MOVE_WEST          -> handleMove(index, phase, currentX, currentY, -1, 0);
+            case IDLE               -> handleIdle(index, phase, currentX, currentY);
             case PATTERN_COMPLETE   -> endSimulation();
             default -> throw new IllegalArgumentException("Unexpected value: " + eventType);
         }
     }
-    
+
     private void handleActive() {
         // Handle ACTIVE event if any specific logic is needed
     }
-    
-    private void handleStayPut() {
-        // Handle STAY_PUT event if any specific logic is needed
-    }
-    
-    private void handleLookEvent(int index, int phase, int x, int y, Robot robot) {
-        statistics.incrementCycleCounter(index);
-        emitRobotEvent(index, SimulationEventType.ROBOT_LOOKING, phase, x, y);
-        Coordinate robotLocation = currentConfiguration.get(index);
-        robot.supplyConfigurations(translateConfigurationToRobotsCoordinate(robotLocation), this.targetPattern);
-    }
-    
-    private void handleMoveEvent(int index, int phase, int x, int y, int deltaX, int deltaY) {
-        currentConfiguration.get(index).moveBy(deltaX, deltaY);
-        emitRobotEvent(index, SimulationEventType.ROBOT_MOVING, phase, x, y, x + deltaX, y + deltaY);
-        statistics.incrementStepsForPhase(index, phase);
-        List<SER> SERs = getSER();
-        statistics.trackSERSize(SERs.get(0).getWidth(), SERs.get(0).getHeight());
-        checkForCollisions();
-        checkForRepetition();
-    }
-    
-    private void emitRobotEvent(int index, SimulationEventType type, int phase, int startX, int startY) {
-        emitRobotEvent(index, type, phase, startX, startY, startX, startY);
+
+    private void handleStayPut(int index) {
+        this.scheduler.recordDecision(index, false);
     }
-    
-    private void emitRobotEvent(int index, SimulationEventType type, int phase, int startX, int startY, int endX, int endY) {
-        globalEventEmitter.emitEvent(new SimulationEvent(index, type, phase, startX, startY, endX, endY));
+
+    private void handleIdle(int index, int phase, int x, int y) {
+        emitRobotEvent(index, SimulationEventType.ROBOT_IDLE, phase, x, y);
+        this.scheduler.markIdle(index);
     }
 
-    private void endSimulation() {
-        this.completed = true;
-        this.statistics.setEndTime(Instant.now());
+    private void handleMove(int index, int phase, int x, int y, int deltaX, int deltaY) {
+        this.scheduler.recordDecision(index, true);
+        handleMoveEvent(index, phase, x, y, deltaX, deltaY);
     }
 }
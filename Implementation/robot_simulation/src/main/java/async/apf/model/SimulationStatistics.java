@@ -7,6 +7,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 
+import async.apf.model.schedulers.SchedulerMetrics;
+
 public class SimulationStatistics {
     private final int robotCount;
     private final int startWidth;
@@ -25,6 +27,9 @@ public class SimulationStatistics {
     private Instant startTime;
     private Instant endTime;
 
+    // Filled by the scheduler that ran the simulation
+    private SchedulerMetrics schedulerMetrics;
+
     public SimulationStatistics(int robotCount, int startWidth, int startHeight) {
         this.robotCount = robotCount;
         this.startWidth = Math.min(startWidth, startHeight);
@@ -46,6 +51,14 @@ public class SimulationStatistics {
         this.startTime = Instant.now();
     }
 
+    public SchedulerMetrics getSchedulerMetrics() {
+        return schedulerMetrics;
+    }
+
+    public void setSchedulerMetrics(SchedulerMetrics schedulerMetrics) {
+        this.schedulerMetrics = schedulerMetrics;
+    }
+
     public void incrementActivationCounter(int index) {
         this.activationCounter.set(index, this.activationCounter.get(index) + 1);
     }
@@ -0,0 +1,82 @@
+package async.apf.model;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Canonical orientations of target patterns, shared between simulations.
+ * <p>
+ * The target never changes during a simulation, and a batch usually runs
+ * many simulations towards the same target. The orientation is computed once
+ * per distinct pattern, up to translation, and handed to every robot of every
+ * simulation using it. The cached orientations are shared and must be treated
+ * as read-only.
+ */
+public final class TargetPatternCache {
+    private static final int MAX_ENTRIES = 64;
+
+    // Least recently used patterns are evicted first
+    private static final Map<PatternKey, ConfigurationOrientation> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PatternKey, ConfigurationOrientation> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private TargetPatternCache() {}
+
+    public static ConfigurationOrientation orient(List<Coordinate> targetPattern) {
+        PatternKey key = new PatternKey(targetPattern);
+        synchronized (CACHE) {
+            ConfigurationOrientation cached = CACHE.get(key);
+            if (cached != null) return cached;
+        }
+
+        // Computed outside the lock, at worst two simulations compute the same pattern
+        ConfigurationOrientation orientation = OrientationHelper.orientConfiguration(targetPattern);
+        synchronized (CACHE) {
+            ConfigurationOrientation cached = CACHE.putIfAbsent(key, orientation);
+            return cached != null ? cached : orientation;
+        }
+    }
+
+    public static void clear() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    // The pattern translated to the origin, as sorted packed coordinates
+    private static final class PatternKey {
+        private final long[] cells;
+        private final int hash;
+
+        PatternKey(List<Coordinate> pattern) {
+            int minX = Integer.MAX_VALUE;
+            int minY = Integer.MAX_VALUE;
+            for (Coordinate coordinate : pattern) {
+                minX = Math.min(minX, coordinate.getX());
+                minY = Math.min(minY, coordinate.getY());
+            }
+            this.cells = new long[pattern.size()];
+            for (int i = 0; i < cells.length; i++) {
+                Coordinate coordinate = pattern.get(i);
+                cells[i] = (long) (coordinate.getX() - minX) << 32 | (coordinate.getY() - minY);
+            }
+            Arrays.sort(cells);
+            this.hash = Arrays.hashCode(cells);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof PatternKey other && Arrays.equals(cells, other.cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
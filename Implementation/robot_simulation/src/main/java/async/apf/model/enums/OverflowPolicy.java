@@ -0,0 +1,11 @@
+package async.apf.model.enums;
+
+// What an event buffer does with new events while it is full
+public enum OverflowPolicy {
+    // The producer waits until the consumer made room
+    BLOCK,
+    // The oldest buffered event is overwritten
+    DROP_OLDEST,
+    // Events are merged per robot until the consumer catches up
+    COALESCE,
+}
@@ -0,0 +1,11 @@
+package async.apf.model.enums;
+
+// How the threaded simulation runs the cycles of its robots
+public enum RobotExecutionMode {
+    // A dedicated platform thread per robot
+    THREAD_PER_ROBOT,
+    // One pool of platform threads per simulation, sized to the available cores
+    SHARED_POOL,
+    // Every cycle on its own virtual thread
+    VIRTUAL_THREADS,
+}
@@ -0,0 +1,10 @@
+package async.apf.model.enums;
+
+// Built-in activation policies of the AsyncScheduler
+public enum SchedulingPolicy {
+    UNIFORM_RANDOM,
+    ROUND_ROBIN,
+    RANDOM_PERMUTATION,
+    K_BOUNDED_FAIR,
+    PREFER_MOVING,
+}
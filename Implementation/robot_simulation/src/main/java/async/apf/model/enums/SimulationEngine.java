@@ -0,0 +1,9 @@
+package async.apf.model.enums;
+
+// Engines a Model can drive a simulation with
+public enum SimulationEngine {
+    // One thread per simulation plus robot executors, paced for the JavaFX view
+    THREADED,
+    // Single-threaded discrete-event loop for headless runs
+    DISCRETE_EVENT,
+}
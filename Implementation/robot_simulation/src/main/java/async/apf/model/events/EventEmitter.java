@@ -1,42 +1,103 @@
 package async.apf.model.events;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import async.apf.interfaces.IEvent;
 import async.apf.interfaces.IEventListener;
+import async.apf.model.enums.RobotEventType;
+import async.apf.model.enums.SimulationEventType;
 
+/**
+ * Event bus between robots, simulations, model, controller and view.
+ * <p>
+ * Listeners either receive every event or only the events of one
+ * {@link SimulationEventType} or {@link RobotEventType}. Dispatch goes by the
+ * event's class and enum type. Emitting takes no lock: the listener lists are
+ * copy-on-write, so any number of threads can emit at the same time.
+ */
 public class EventEmitter {
     private final List<IEventListener> listeners = new CopyOnWriteArrayList<>();
-    private final HashMap<String, Runnable> onEventActions = new HashMap<>();
+    // Both maps are filled up front and never change, only the lists they hold do
+    private final Map<SimulationEventType, List<IEventListener>> simulationListeners = new EnumMap<>(SimulationEventType.class);
+    private final Map<RobotEventType, List<IEventListener>> robotListeners = new EnumMap<>(RobotEventType.class);
+    // At most one action per type, replaced on write so emitting can read it without a lock
+    private volatile Map<SimulationEventType, Runnable> onEventActions = new EnumMap<>(SimulationEventType.class);
 
-    // Method to add an event listener
+    public EventEmitter() {
+        for (SimulationEventType type : SimulationEventType.values()) {
+            simulationListeners.put(type, new CopyOnWriteArrayList<>());
+        }
+        for (RobotEventType type : RobotEventType.values()) {
+            robotListeners.put(type, new CopyOnWriteArrayList<>());
+        }
+    }
+
+    // Method to add an event listener for every event
     public void addEventListener(IEventListener listener) {
         listeners.add(listener);
     }
 
-    // Method to remove an event listener
+    // Method to add an event listener for one type of simulation event
+    public void addEventListener(SimulationEventType type, IEventListener listener) {
+        simulationListeners.get(type).add(listener);
+    }
+
+    // Method to add an event listener for one type of robot event
+    public void addEventListener(RobotEventType type, IEventListener listener) {
+        robotListeners.get(type).add(listener);
+    }
+
+    // Method to add an event listener for every robot event
+    public void addRobotEventListener(IEventListener listener) {
+        for (RobotEventType type : RobotEventType.values()) {
+            addEventListener(type, listener);
+        }
+    }
+
+    // Method to remove an event listener, whatever it was registered for
     public void removeEventListener(IEventListener listener) {
         listeners.remove(listener);
+        for (List<IEventListener> typedListeners : simulationListeners.values()) {
+            typedListeners.remove(listener);
+        }
+        for (List<IEventListener> typedListeners : robotListeners.values()) {
+            typedListeners.remove(listener);
+        }
     }
 
     // Method to emit an event
-    public synchronized void emitEvent(IEvent event) {
+    public void emitEvent(IEvent event) {
         // Notify all listeners about the event
         for (IEventListener listener : listeners) {
             listener.onEvent(event);
         }
-        for (Map.Entry<String, Runnable> action : onEventActions.entrySet()) {
-            if (action.getKey().equals(event.getEventName())) {
-                action.getValue().run();
+        List<IEventListener> typedListeners = null;
+        if (event instanceof SimulationEvent simulationEvent) {
+            typedListeners = simulationListeners.get(simulationEvent.getEventType());
+        }
+        else if (event instanceof RobotEvent robotEvent) {
+            typedListeners = robotListeners.get(robotEvent.getEventType());
+        }
+        if (typedListeners != null) {
+            for (IEventListener listener : typedListeners) {
+                listener.onEvent(event);
+            }
+        }
+        if (event instanceof SimulationEvent simulationEvent) {
+            Runnable action = onEventActions.get(simulationEvent.getEventType());
+            if (action != null) {
+                action.run();
             }
         }
     }
 
-    // Add a global on-event action
-    public void onEvent(String eventName, Runnable action) {
-        onEventActions.put(eventName, action);
+    // Set the global on-event action for one type of simulation event, replacing the previous one
+    public synchronized void onEvent(SimulationEventType type, Runnable action) {
+        Map<SimulationEventType, Runnable> actions = new EnumMap<>(onEventActions);
+        actions.put(type, action);
+        onEventActions = actions;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,288 @@
+package async.apf.model.events;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import async.apf.model.enums.OverflowPolicy;
+import async.apf.model.enums.SimulationEventType;
+
+/**
+ * Bounded, preallocated buffer of robot events between a simulation and the
+ * thread that displays it.
+ * <p>
+ * Events are stored as primitive records in one int array, so publishing does
+ * not allocate. The consumer drains the buffer without taking a lock. Robot
+ * events are emitted from several robot threads, so publishing is serialized
+ * by a short producer lock instead of assuming a single producer.
+ * <p>
+ * A record carries the number of moves it stands for: a single move event
+ * counts as one step, a coalesced record may count several.
+ */
+public class SimulationEventRingBuffer {
+    private static final SimulationEventType[] EVENT_TYPES = SimulationEventType.values();
+
+    // Layout of one record in the array
+    private static final int TYPE    = 0;
+    private static final int ROBOT   = 1;
+    private static final int PHASE   = 2;
+    private static final int FROM_X  = 3;
+    private static final int FROM_Y  = 4;
+    private static final int TO_X    = 5;
+    private static final int TO_Y    = 6;
+    private static final int STEPS   = 7;
+    private static final int RECORD_SIZE = 8;
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final OverflowPolicy policy;
+    private final int capacity;
+    private final int mask;
+    private final int[] records;
+    // Copy of the record being drained, only touched by the consumer
+    private final int[] drainedRecord = new int[RECORD_SIZE];
+
+    // Sequence of the next record to read, advanced by the consumer and by DROP_OLDEST
+    private final AtomicLong head = new AtomicLong();
+    // Sequence of the next record to write, only advanced under the producer lock
+    private volatile long tail;
+
+    private final ReentrantLock producerLock = new ReentrantLock();
+    private final Condition notFull = producerLock.newCondition();
+    private volatile boolean closed = false;
+
+    // Records that did not fit while coalescing, one per robot, in arrival order
+    private int[] pending = new int[0];
+    private boolean[] hasPending = new boolean[0];
+    private int[] pendingOrder = new int[0];
+    private volatile int pendingCount = 0;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    // Receives the drained records, on the consumer's thread
+    @FunctionalInterface
+    public interface RecordHandler {
+        void onRecord(int robot, SimulationEventType type, int phase, int fromX, int fromY, int toX, int toY, int steps);
+    }
+
+    public SimulationEventRingBuffer(OverflowPolicy policy) {
+        this(DEFAULT_CAPACITY, policy);
+    }
+
+    public SimulationEventRingBuffer(int capacity, OverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1!");
+        }
+        // Rounded up to a power of two, so slots are found with a mask
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.policy = policy;
+        this.records = new int[this.capacity * RECORD_SIZE];
+    }
+
+    public boolean publish(SimulationEvent event) {
+        if (event.isGlobalEvent()) {
+            throw new IllegalArgumentException("Only robot events can be buffered!");
+        }
+        return publish(event.getRobotId(), event.getEventType(), event.getPhase(),
+            event.getFromX(), event.getFromY(), event.getToX(), event.getToY());
+    }
+
+    /**
+     * Adds a robot event to the buffer.
+     * @return false if the event was not stored, because the buffer is closed
+     * or the producer was interrupted while waiting for room
+     */
+    public boolean publish(int robot, SimulationEventType type, int phase, int fromX, int fromY, int toX, int toY) {
+        int steps = type == SimulationEventType.ROBOT_MOVING ? 1 : 0;
+        producerLock.lock();
+        try {
+            if (closed) return false;
+
+            // Once a robot has a coalesced record, its later events have to follow it
+            if (robot < hasPending.length && hasPending[robot]) {
+                mergePending(robot, type, phase, toX, toY, steps);
+                return true;
+            }
+
+            long oldest;
+            // Re-read on every pass, other producers may write while this one waits
+            while (this.tail - (oldest = head.get()) >= capacity) {
+                switch (policy) {
+                    case BLOCK -> {
+                        notFull.await();
+                        if (closed) return false;
+                    }
+                    case DROP_OLDEST -> {
+                        // Fails if the consumer took the record meanwhile, which made room too
+                        if (head.compareAndSet(oldest, oldest + 1)) {
+                            droppedCount.incrementAndGet();
+                        }
+                    }
+                    case COALESCE -> {
+                        addPending(robot, type, phase, fromX, fromY, toX, toY, steps);
+                        return true;
+                    }
+                }
+            }
+
+            long sequence = this.tail;
+            int offset = (int) (sequence & mask) * RECORD_SIZE;
+            writeRecord(records, offset, robot, type, phase, fromX, fromY, toX, toY, steps);
+            this.tail = sequence + 1;
+            return true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        finally {
+            producerLock.unlock();
+        }
+    }
+
+    /**
+     * Hands every buffered record to the handler: the records of the ring
+     * oldest first, then the coalesced records of the robots that
+     * overflowed, in the order they first overflowed. The records of one
+     * robot stay in order, but a coalesced record comes after ring records
+     * other robots published later.
+     * Must only be called from the consumer's thread.
+     * @return the number of records handed over
+     */
+    public int drain(RecordHandler handler) {
+        int drained = drainRing(handler);
+
+        if (pendingCount > 0) {
+            producerLock.lock();
+            try {
+                // A robot only coalesces once its earlier records are in the ring, so those go first
+                drained += drainRing(handler);
+                for (int i = 0; i < pendingCount; i++) {
+                    int robot = pendingOrder[i];
+                    dispatch(pending, robot * RECORD_SIZE, handler);
+                    hasPending[robot] = false;
+                    drained++;
+                }
+                pendingCount = 0;
+            }
+            finally {
+                producerLock.unlock();
+            }
+        }
+
+        if (drained > 0 && policy == OverflowPolicy.BLOCK) {
+            signalNotFull();
+        }
+        return drained;
+    }
+
+    private int drainRing(RecordHandler handler) {
+        int drained = 0;
+        long sequence = head.get();
+        while (sequence < this.tail) {
+            int offset = (int) (sequence & mask) * RECORD_SIZE;
+            System.arraycopy(records, offset, drainedRecord, 0, RECORD_SIZE);
+            // If a producer dropped this record meanwhile, the copy may be torn
+            if (!head.compareAndSet(sequence, sequence + 1)) {
+                sequence = head.get();
+                continue;
+            }
+            dispatch(drainedRecord, 0, handler);
+            sequence++;
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Stops accepting events and releases producers waiting for room
+     */
+    public void close() {
+        this.closed = true;
+        signalNotFull();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return (int) Math.max(0, this.tail - head.get()) + pendingCount;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    private void signalNotFull() {
+        producerLock.lock();
+        try {
+            notFull.signalAll();
+        }
+        finally {
+            producerLock.unlock();
+        }
+    }
+
+    private void addPending(int robot, SimulationEventType type, int phase, int fromX, int fromY, int toX, int toY, int steps) {
+        if (robot >= hasPending.length) {
+            int length = Math.max(robot + 1, hasPending.length * 2);
+            pending = Arrays.copyOf(pending, length * RECORD_SIZE);
+            hasPending = Arrays.copyOf(hasPending, length);
+            pendingOrder = Arrays.copyOf(pendingOrder, length);
+        }
+        writeRecord(pending, robot * RECORD_SIZE, robot, type, phase, fromX, fromY, toX, toY, steps);
+        hasPending[robot] = true;
+        pendingOrder[pendingCount] = robot;
+        pendingCount++;
+    }
+
+    // Keeps where the robot started from, takes everything else from the newer event
+    private void mergePending(int robot, SimulationEventType type, int phase, int toX, int toY, int steps) {
+        int offset = robot * RECORD_SIZE;
+        pending[offset + TYPE]  = type.ordinal();
+        pending[offset + PHASE] = phase;
+        pending[offset + TO_X]  = toX;
+        pending[offset + TO_Y]  = toY;
+        pending[offset + STEPS] += steps;
+        coalescedCount.incrementAndGet();
+    }
+
+    private static void writeRecord(int[] target, int offset, int robot, SimulationEventType type, int phase, int fromX, int fromY, int toX, int toY, int steps) {
+        target[offset + TYPE]   = type.ordinal();
+        target[offset + ROBOT]  = robot;
+        target[offset + PHASE]  = phase;
+        target[offset + FROM_X] = fromX;
+        target[offset + FROM_Y] = fromY;
+        target[offset + TO_X]   = toX;
+        target[offset + TO_Y]   = toY;
+        target[offset + STEPS]  = steps;
+    }
+
+    private static void dispatch(int[] source, int offset, RecordHandler handler) {
+        handler.onRecord(
+            source[offset + ROBOT],
+            EVENT_TYPES[source[offset + TYPE]],
+            source[offset + PHASE],
+            source[offset + FROM_X],
+            source[offset + FROM_Y],
+            source[offset + TO_X],
+            source[offset + TO_Y],
+            source[offset + STEPS]);
+    }
+}
@@ -0,0 +1,88 @@
+package async.apf.model.schedulers;
+
+import java.util.Arrays;
+
+import async.apf.model.AsyncScheduler;
+import async.apf.model.enums.SchedulingPolicy;
+
+/**
+ * Uniform random picks restricted to a k-fair schedule: between two
+ * consecutive activations of any robot, no other robot is activated more than
+ * k times.
+ * <p>
+ * The robot that waited the longest is always allowed; if it is busy and no
+ * other allowed robot is idle, the pick falls back to any idle robot.
+ */
+public class BoundedFairScheduler extends AsyncScheduler {
+    public static final int DEFAULT_BOUND = 2;
+
+    private final int bound;
+    private long tick = 0;
+    private final long[] lastPick;
+    // The pick ticks of the last k picks of each robot, as ring buffers
+    private final long[] recentPicks;
+    private final int[] recentCursor;
+
+    public BoundedFairScheduler(int robotCount, long seed, int bound) {
+        super(robotCount, seed);
+        if (bound < 1) {
+            throw new IllegalArgumentException("Fairness bound must be at least 1!");
+        }
+        this.bound = bound;
+        // The start counts as an activation of every robot
+        this.lastPick = new long[robotCount];
+        Arrays.fill(this.lastPick, -1);
+        this.recentPicks = new long[robotCount * bound];
+        Arrays.fill(this.recentPicks, Long.MIN_VALUE);
+        this.recentCursor = new int[robotCount];
+    }
+
+    @Override
+    protected int choose() {
+        long longestWaiting = Long.MAX_VALUE;
+        for (long pick : lastPick) {
+            longestWaiting = Math.min(longestWaiting, pick);
+        }
+
+        // A robot is allowed if it was picked less than k times since the
+        // robot that waits the longest was last picked
+        int allowed = 0;
+        for (int i = 0; i < robotCount; i++) {
+            if (isIdle(i) && isAllowed(i, longestWaiting)) allowed++;
+        }
+        int index;
+        if (allowed == 0) {
+            index = randomIdleRobot();
+        }
+        else {
+            int chosen = random.nextInt(allowed);
+            index = 0;
+            for (int i = 0; i < robotCount; i++) {
+                if (isIdle(i) && isAllowed(i, longestWaiting) && chosen-- == 0) {
+                    index = i;
+                    break;
+                }
+            }
+        }
+
+        recentPicks[index * bound + recentCursor[index]] = tick;
+        recentCursor[index] = (recentCursor[index] + 1) % bound;
+        lastPick[index] = tick;
+        tick++;
+        return index;
+    }
+
+    private boolean isAllowed(int index, long longestWaiting) {
+        // The oldest of the last k picks, the cursor points at it
+        return recentPicks[index * bound + recentCursor[index]] <= longestWaiting;
+    }
+
+    public int getBound() {
+        return bound;
+    }
+
+    @Override
+    public SchedulingPolicy getPolicy() {
+        return SchedulingPolicy.K_BOUNDED_FAIR;
+    }
+}
@@ -0,0 +1,88 @@
+package async.apf.model.schedulers;
+
+import java.util.Arrays;
+
+import async.apf.model.AsyncScheduler;
+import async.apf.model.enums.SchedulingPolicy;
+
+/**
+ * Prefers robots whose last COMPUTE decided to move, since most phases of the
+ * algorithm are driven by a single robot while the others stay put.
+ * <p>
+ * A share of the picks stays uniform and no robot waits longer than
+ * {@code (starvationLimit + 1) * robotCount} picks, so every robot is still
+ * activated infinitely often and the schedule remains a valid ASYNC adversary.
+ * The bound holds in the discrete-event engine, where every robot is idle
+ * when picking. In the threaded engine a starving robot that is busy when
+ * the cursor reaches it is only caught on the cursor's next round, so its
+ * wait is also bounded by how long its cycles take.
+ */
+public class MovePreferringScheduler extends AsyncScheduler {
+    public static final double DEFAULT_EXPLORATION = 0.25;
+    public static final int DEFAULT_STARVATION_LIMIT = 4;
+
+    private final double exploration;
+    private final long starvationLimit;
+
+    // Robots expected to move, kept as a dense set for O(1) random picks
+    private final int[] movers;
+    private final int[] moverPosition;
+    private int moverCount = 0;
+
+    private long tick = 0;
+    private final long[] lastPick;
+    private int starvationCursor = 0;
+
+    public MovePreferringScheduler(int robotCount, long seed) {
+        this(robotCount, seed, DEFAULT_EXPLORATION, DEFAULT_STARVATION_LIMIT);
+    }
+
+    public MovePreferringScheduler(int robotCount, long seed, double exploration, int starvationLimit) {
+        super(robotCount, seed);
+        this.exploration = exploration;
+        this.starvationLimit = (long) starvationLimit * robotCount;
+        this.movers = new int[robotCount];
+        this.moverPosition = new int[robotCount];
+        Arrays.fill(this.moverPosition, -1);
+        this.lastPick = new long[robotCount];
+    }
+
+    @Override
+    protected int choose() {
+        int index = findStarvingRobot();
+        if (index < 0 && moverCount > 0 && random.nextDouble() >= exploration) {
+            index = movers[random.nextInt(moverCount)];
+        }
+        if (index < 0 || !isIdle(index)) {
+            index = randomIdleRobot();
+        }
+        lastPick[index] = tick++;
+        return index;
+    }
+
+    // Checks one robot per pick, which is enough to bound every wait while all robots are idle
+    private int findStarvingRobot() {
+        int candidate = starvationCursor;
+        starvationCursor = (starvationCursor + 1) % robotCount;
+        return isIdle(candidate) && tick - lastPick[candidate] > starvationLimit ? candidate : -1;
+    }
+
+    @Override
+    protected void onDecision(int index, boolean moves) {
+        if (moves && moverPosition[index] < 0) {
+            moverPosition[index] = moverCount;
+            movers[moverCount++] = index;
+        }
+        else if (!moves && moverPosition[index] >= 0) {
+            int last = movers[--moverCount];
+            movers[moverPosition[index]] = last;
+            moverPosition[last] = moverPosition[index];
+            moverPosition[index] = -1;
+        }
+    }
+
+    @Override
+    public SchedulingPolicy getPolicy() {
+        return SchedulingPolicy.PREFER_MOVING;
+    }
+}
@@ -0,0 +1,47 @@
+package async.apf.model.schedulers;
+
+import async.apf.model.AsyncScheduler;
+import async.apf.model.enums.SchedulingPolicy;
+
+// Every round activates each robot at most once, in a freshly shuffled order.
+// Robots that are busy when their turn comes are skipped for that round.
+public class RandomPermutationScheduler extends AsyncScheduler {
+    private final int[] permutation;
+    private int position;
+
+    public RandomPermutationScheduler(int robotCount, long seed) {
+        super(robotCount, seed);
+        this.permutation = new int[robotCount];
+        for (int i = 0; i < robotCount; i++) {
+            permutation[i] = i;
+        }
+        this.position = robotCount;
+    }
+
+    @Override
+    protected int choose() {
+        while (true) {
+            if (position == robotCount) {
+                shuffle();
+                position = 0;
+            }
+            int index = permutation[position++];
+            if (isIdle(index)) return index;
+        }
+    }
+
+    // Fisher-Yates
+    private void shuffle() {
+        for (int i = robotCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = tmp;
+        }
+    }
+
+    @Override
+    public SchedulingPolicy getPolicy() {
+        return SchedulingPolicy.RANDOM_PERMUTATION;
+    }
+}
@@ -0,0 +1,29 @@
+package async.apf.model.schedulers;
+
+import async.apf.model.AsyncScheduler;
+import async.apf.model.enums.SchedulingPolicy;
+
+// Activates the robots in index order skipping busy ones, the seed only picks the first robot
+public class RoundRobinScheduler extends AsyncScheduler {
+    private int cursor;
+
+    public RoundRobinScheduler(int robotCount, long seed) {
+        super(robotCount, seed);
+        this.cursor = random.nextInt(robotCount);
+    }
+
+    @Override
+    protected int choose() {
+        while (!isIdle(cursor)) {
+            cursor = (cursor + 1) % robotCount;
+        }
+        int index = cursor;
+        cursor = (cursor + 1) % robotCount;
+        return index;
+    }
+
+    @Override
+    public SchedulingPolicy getPolicy() {
+        return SchedulingPolicy.ROUND_ROBIN;
+    }
+}
@@ -0,0 +1,117 @@
+package async.apf.model.schedulers;
+
+/**
+ * Throughput and fairness figures of a scheduler over one simulation.
+ * <p>
+ * Throughput is measured as the share of picks that did useful work (started
+ * a cycle, led to a move); fairness as Jain's index over the per-robot pick
+ * counts and as the longest wait of a robot between two of its activations.
+ */
+public class SchedulerMetrics {
+    private final int robotCount;
+    private final long[] picksPerRobot;
+    private final long[] lastPick;
+    private final long[] longestWait;
+
+    private long picks = 0;
+    private long cycles = 0;
+    private long moves = 0;
+    private long firstPickNanos = 0;
+    private long lastPickNanos = 0;
+
+    public SchedulerMetrics(int robotCount) {
+        this.robotCount = robotCount;
+        this.picksPerRobot = new long[robotCount];
+        this.lastPick = new long[robotCount];
+        this.longestWait = new long[robotCount];
+    }
+
+    public void recordPick(int index) {
+        long now = System.nanoTime();
+        if (picks == 0) firstPickNanos = now;
+        lastPickNanos = now;
+
+        longestWait[index] = Math.max(longestWait[index], picks - lastPick[index]);
+        lastPick[index] = picks;
+        picksPerRobot[index]++;
+        picks++;
+    }
+
+    public void recordCycle() {
+        cycles++;
+    }
+
+    public void recordMove() {
+        moves++;
+    }
+
+    public long getPicks() {
+        return picks;
+    }
+
+    public long getCycles() {
+        return cycles;
+    }
+
+    public long getMoves() {
+        return moves;
+    }
+
+    public long getPicks(int robotIndex) {
+        return picksPerRobot[robotIndex];
+    }
+
+    public double getPicksPerSecond() {
+        long elapsed = lastPickNanos - firstPickNanos;
+        return elapsed > 0 ? picks * 1e9 / elapsed : 0;
+    }
+
+    // Share of picks that started a Look-Compute-Move cycle
+    public double getCycleRatio() {
+        return picks > 0 ? (double) cycles / picks : 0;
+    }
+
+    // Moves per pick, the useful progress bought by a scheduling decision
+    public double getMoveRatio() {
+        return picks > 0 ? (double) moves / picks : 0;
+    }
+
+    // Jain's fairness index: 1 if every robot was picked equally often, 1/n at worst
+    public double getJainIndex() {
+        double sum = 0;
+        double sumOfSquares = 0;
+        for (long count : picksPerRobot) {
+            sum += count;
+            sumOfSquares += (double) count * count;
+        }
+        return sumOfSquares > 0 ? sum * sum / (robotCount * sumOfSquares) : 1;
+    }
+
+    // Most picks any robot had to wait between two of its activations (including the wait so far)
+    public long getLongestWait() {
+        long result = 0;
+        for (int i = 0; i < robotCount; i++) {
+            result = Math.max(result, Math.max(longestWait[i], picks - lastPick[i]));
+        }
+        return result;
+    }
+
+    public long getMinPicks() {
+        long result = Long.MAX_VALUE;
+        for (long count : picksPerRobot) result = Math.min(result, count);
+        return result;
+    }
+
+    public long getMaxPicks() {
+        long result = 0;
+        for (long count : picksPerRobot) result = Math.max(result, count);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "picks=%d cycles=%d moves=%d picks/s=%.0f cycle ratio=%.3f move ratio=%.3f jain=%.3f longest wait=%d",
+            picks, cycles, moves, getPicksPerSecond(), getCycleRatio(), getMoveRatio(), getJainIndex(), getLongestWait());
+    }
+}
@@ -0,0 +1,21 @@
+package async.apf.model.schedulers;
+
+import async.apf.model.AsyncScheduler;
+import async.apf.model.enums.SchedulingPolicy;
+
+// Every pick is an independent uniform draw over the idle robots
+public class UniformRandomScheduler extends AsyncScheduler {
+    public UniformRandomScheduler(int robotCount, long seed) {
+        super(robotCount, seed);
+    }
+
+    @Override
+    protected int choose() {
+        return randomIdleRobot();
+    }
+
+    @Override
+    public SchedulingPolicy getPolicy() {
+        return SchedulingPolicy.UNIFORM_RANDOM;
+    }
+}
@@ -25,6 +25,9 @@ public class RobotViewState implements IPositioned {
     public void incrementStepCount() {
         this.stepCount += 1;
     }
+    public void incrementStepCount(int steps) {
+        this.stepCount += steps;
+    }
 
     public RobotState getState() {
         return this.state;
@@ -1,11 +1,10 @@
 package async.apf.view;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
-import java.util.Set;
 
+import async.apf.batch.PatternGenerator;
 import async.apf.model.Coordinate;
 import async.apf.model.events.EventEmitter;
 import async.apf.view.elements.batch_run.BatchRunSettingsWindow;
@@ -72,8 +71,8 @@ public class ViewMethods {
         this.targetStates.clear();
         this.initialStatesOriginal.clear();
 
-        List<Coordinate> randomInitialPattern = generateCoordinates(rng, robotCount, initMaxW, initMaxH);
-        List<Coordinate> randomTargetPattern = generateCoordinates(rng, robotCount, targetMaxW, targetMaxH);
+        List<Coordinate> randomInitialPattern = PatternGenerator.generateCoordinates(rng, robotCount, initMaxW, initMaxH);
+        List<Coordinate> randomTargetPattern = PatternGenerator.generateCoordinates(rng, robotCount, targetMaxW, targetMaxH);
 
         for (int idx = 0; idx < randomInitialPattern.size(); idx++) {
             this.initialStatesOriginal.add(new RobotViewState(randomInitialPattern.get(idx)));
@@ -85,26 +84,6 @@ public class ViewMethods {
         simulationStartButton.setDisable(false);
     }
 
-    public static List<Coordinate> generateCoordinates(Random rng, int count, int width, int height) {
-        Set<Coordinate> coordinates = new HashSet<>();
-
-        // Ensure we do not ask for more unique points than possible
-        if (count > width * height) {
-            throw new IllegalArgumentException("Cannot generate more unique coordinates than the area size.");
-        }
-
-        while (coordinates.size() < count) {
-            int x = rng.nextInt(width);
-            int y = rng.nextInt(height);
-
-            Coordinate point = new Coordinate(x, y);
-            coordinates.add(point);
-        }
-
-        // Convert Set to List and return
-        return new ArrayList<>(coordinates);
-    }
-
     public void openBatchRunSettingsWindow() {
         BatchRunSettingsWindow batchRunSettingsWindow = new BatchRunSettingsWindow();
         batchRunSettingsWindow.openBatchRunSettingsWindow();
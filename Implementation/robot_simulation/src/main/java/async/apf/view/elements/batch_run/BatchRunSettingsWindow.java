@@ -1,24 +1,31 @@
 package async.apf.view.elements.batch_run;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Random;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.JFileChooser;
 
+import async.apf.batch.BatchExecutor;
+import async.apf.batch.BatchResultSink;
+import async.apf.batch.BatchSummary;
+import async.apf.batch.IntRange;
+import async.apf.batch.PatternGenerator;
+import async.apf.batch.StatisticsAggregate;
+import async.apf.batch.StatisticsAggregator;
 import async.apf.model.Coordinate;
-import async.apf.model.Simulation;
+import async.apf.model.DiscreteEventSimulation;
 import async.apf.model.SimulationStatistics;
+import async.apf.model.enums.SimulationEventType;
 import async.apf.model.events.EventEmitter;
-import async.apf.view.ViewMethods;
+import async.apf.model.exceptions.InvalidInputException;
 import async.apf.view.elements.FileInputField;
 import async.apf.view.elements.LabeledPositiveIntegerField;
 import async.apf.view.elements.LabeledPositiveRangeField;
@@ -99,7 +106,10 @@ public class BatchRunSettingsWindow {
         addInitialConfigurationInputs(gridPane);
         addTargetPatternInputs(gridPane);
 
-        runBatchButton.setOnAction(e -> uiExecutor.submit(this::runBatch));
+        runBatchButton.setOnAction(e -> {
+            BatchInputs inputs = readInputs();
+            uiExecutor.submit(() -> runBatch(inputs));
+        });
 
         gridPane.add(runBatchButton, 0, 10, 2, 1);
         gridPane.add(progressBar, 0, 11, 2, 1);
@@ -228,179 +238,158 @@ public class BatchRunSettingsWindow {
         return robotCountField.isValid();
     }
 
-    private void runBatch() {
-        progressBar.setProgress(0);
+    // The form as it was when the batch was started, read on the FX thread
+    private record BatchInputs(
+        int batchSize,
+        IntRange robotCount,
+        List<Coordinate> initialFromFile,
+        IntRange initialWidth,
+        IntRange initialHeight,
+        List<Coordinate> targetFromFile,
+        IntRange targetWidth,
+        IntRange targetHeight
+    ) {}
+
+    // Only the fields of the selected options, the others may hold anything
+    private BatchInputs readInputs() {
+        boolean initialFromFile = initialAreaFileToggle.isSelected();
+        boolean targetFromFile = targetAreaFileToggle.isSelected();
+        return new BatchInputs(
+            batchSizeField.getValue(),
+            toRange(robotCountField),
+            initialFromFile ? PatternGenerator.copyCoordinates(initialAreaFileField.getCoordinates()) : null,
+            initialFromFile ? null : toRange(initialAreaWidthField),
+            initialFromFile ? null : toRange(initialAreaHeightField),
+            targetFromFile ? PatternGenerator.copyCoordinates(targetAreaFileField.getCoordinates()) : null,
+            targetFromFile ? null : toRange(targetAreaWidthField),
+            targetFromFile ? null : toRange(targetAreaHeightField));
+    }
 
-        int batchSize = batchSizeField.getValue();
-        List<Simulation> simulations = new ArrayList<>();
-        List<SimulationStatistics> stats = new ArrayList<>();
-        CountDownLatch latch = new CountDownLatch(batchSize);
+    private static IntRange toRange(LabeledPositiveRangeField field) {
+        return new IntRange(field.getRange()[0], field.getRange()[1]);
+    }
 
-        int maxConcurrentThreads = 4; // Limit concurrent simulations
-        Semaphore semaphore = new Semaphore(maxConcurrentThreads);
-        ExecutorService executor = Executors.newCachedThreadPool(); // Cached thread pool for dynamic thread management
+    private void runBatch(BatchInputs inputs) {
+        // Rows are written as the simulations finish, so the file has to be known up front
+        File summaryFile = chooseSummaryFile();
+        if (summaryFile == null) {
+            System.out.println("Batch run cancelled by user.");
+            return;
+        }
+        Platform.runLater(() -> progressBar.setProgress(0));
 
-        // Prepare simulation objects
+        int batchSize = inputs.batchSize();
+        AtomicInteger finished = new AtomicInteger();
+        StatisticsAggregator aggregator = new StatisticsAggregator();
+        // Every simulation generates its inputs from its own seed once it starts
+        long[] seeds = new long[batchSize];
         for (int i = 0; i < batchSize; i++) {
-            int robotCount = robotCountField.getRange()[0] + rng.nextInt(robotCountField.getRange()[1] - robotCountField.getRange()[0] + 1);
-
-            List<Coordinate> initialConfig = getInitialConfig(robotCount);
-            List<Coordinate> targetPattern = getTargetPattern(robotCount);
-
-            try {
-                EventEmitter simulationEventEmitter = new EventEmitter();
-                // Count finished simulations
-                simulationEventEmitter.onEvent("SIMULATION_END", () -> {
-                    latch.countDown();
-                    semaphore.release();
-
-                    // Update progress
-                    double progress = (batchSize - latch.getCount()) / (double) batchSize;
-                    Platform.runLater(() -> progressBar.setProgress(progress));
-
-                    System.out.println((batchSize - latch.getCount()) + " / " + batchSize + " simulations completed!");
-                });
-                simulationEventEmitter.onEvent("SIMULATION_FAIL", () -> {
-                    latch.countDown();
-                    semaphore.release();
-
-                    // Update progress
-                    double progress = (batchSize - latch.getCount()) / (double) batchSize;
-                    Platform.runLater(() -> progressBar.setProgress(progress));
-
-                    System.out.println("Simulation " + (batchSize - latch.getCount()) + " failed!");
-                });
-                Simulation newSimulation = new Simulation(simulationEventEmitter, initialConfig, targetPattern);
-                simulations.add(newSimulation);
-                simulationEventEmitter.addEventListener(newSimulation);
-            }
-            catch (Exception e) {
-                
-            }
+            seeds[i] = rng.nextLong();
         }
 
-        // Run simulations
-        try {
-            for (Simulation simulation : simulations) {
-                executor.submit(() -> {
+        try (BatchResultSink sink = new BatchResultSink(summaryFile.toPath());
+             BatchExecutor executor = new BatchExecutor()) {
+            // Each simulation runs to completion on one of the executor's workers and is dropped once its row is written
+            executor.forEach(batchSize, index -> {
+                DiscreteEventSimulation simulation;
+                try {
+                    simulation = createSimulation(inputs, new Random(seeds[index]), finished);
+                }
+                catch (Exception e) {
+                    System.out.println("Simulation " + index + " could not be created: " + e.getMessage());
+                    countFinished(finished, batchSize);
+                    return;
+                }
+
+                try {
+                    simulation.run();
+                }
+                catch (RuntimeException e) {
+                    // Neither end event fired, so count it here and let the others run
+                    System.out.println("Simulation " + index + " crashed: " + e);
+                    countFinished(finished, batchSize);
+                    return;
+                }
+                if (simulation.isComplete()) {
                     try {
-                        semaphore.acquire(); // Acquire a permit before starting
-                        simulation.begin(); // Start the simulation
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
+                        sink.accept(index, simulation.getStatistics());
+                        aggregator.record(0, simulation.getStatistics());
                     }
-                });
-            }
-
-            // Wait for all simulations to complete
-            latch.await();
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
             System.out.println("All objects have completed processing!");
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            executor.shutdown();
+            System.out.println("CSV saved to file: " + summaryFile.getAbsolutePath());
+
+            // Percentiles of the batch, next to the runs
+            Path percentileFile = BatchSummary.summaryFileFor(summaryFile.toPath());
+            StatisticsAggregate aggregate = aggregator.merge().getOrDefault(0, new StatisticsAggregate());
+            Files.writeString(percentileFile, BatchSummary.summarizeAggregate(aggregate));
+            System.out.println("Percentiles saved to file: " + percentileFile.toAbsolutePath());
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Failed to write CSV to file: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-
-        // Get stats
-        for (Simulation simulation : simulations)
-            if (simulation.isComplete())
-                stats.add(simulation.getStatistics());
-        
-        String summary = summarizeStats(stats);
-        writeSummaryToFile(summary);
     }
 
-    private List<Coordinate> getInitialConfig(int robotCount) {
-        if (initialAreaFileToggle.isSelected()) {
-            return initialAreaFileField.getCoordinates();
-        }
-        else {
-            int width = initialAreaWidthField.getRange()[0] + rng.nextInt(initialAreaWidthField.getRange()[1] - initialAreaWidthField.getRange()[0] + 1);
-            int height = initialAreaHeightField.getRange()[0] + rng.nextInt(initialAreaHeightField.getRange()[1] - initialAreaHeightField.getRange()[0] + 1);
-            return ViewMethods.generateCoordinates(rng, robotCount, width, height);
-        }
+    private DiscreteEventSimulation createSimulation(BatchInputs inputs, Random rng, AtomicInteger finished) throws InvalidInputException {
+        int batchSize = inputs.batchSize();
+        // A file fixes the robot count
+        int robotCount = inputs.initialFromFile() != null ? inputs.initialFromFile().size()
+            : inputs.targetFromFile() != null ? inputs.targetFromFile().size()
+            : inputs.robotCount().pick(rng);
+
+        List<Coordinate> initialConfig = inputs.initialFromFile() != null
+            ? PatternGenerator.copyCoordinates(inputs.initialFromFile())
+            : PatternGenerator.generateCoordinates(rng, robotCount, inputs.initialWidth().pick(rng), inputs.initialHeight().pick(rng));
+        List<Coordinate> targetPattern = inputs.targetFromFile() != null
+            ? PatternGenerator.copyCoordinates(inputs.targetFromFile())
+            : PatternGenerator.generateCoordinates(rng, robotCount, inputs.targetWidth().pick(rng), inputs.targetHeight().pick(rng));
+
+        EventEmitter simulationEventEmitter = new EventEmitter();
+        // Count finished simulations
+        simulationEventEmitter.onEvent(SimulationEventType.SIMULATION_END, () -> {
+            int done = countFinished(finished, batchSize);
+            System.out.println(done + " / " + batchSize + " simulations completed!");
+        });
+        simulationEventEmitter.onEvent(SimulationEventType.SIMULATION_FAIL, () -> {
+            int done = countFinished(finished, batchSize);
+            System.out.println("Simulation " + done + " failed!");
+        });
+        return new DiscreteEventSimulation(simulationEventEmitter, initialConfig, targetPattern);
     }
 
-    private List<Coordinate> getTargetPattern(int robotCount) {
-        if (targetAreaFileToggle.isSelected()) {
-            return targetAreaFileField.getCoordinates();
-        }
-        else {
-            int width = targetAreaWidthField.getRange()[0] + rng.nextInt(targetAreaWidthField.getRange()[1] - targetAreaWidthField.getRange()[0] + 1);
-            int height = targetAreaHeightField.getRange()[0] + rng.nextInt(targetAreaHeightField.getRange()[1] - targetAreaHeightField.getRange()[0] + 1);
-            return ViewMethods.generateCoordinates(rng, robotCount, width, height);
-        }
+    // Counts a simulation as done, whatever its outcome, and updates the progress
+    private int countFinished(AtomicInteger finished, int batchSize) {
+        int done = finished.incrementAndGet();
+        double progress = done / (double) batchSize;
+        Platform.runLater(() -> progressBar.setProgress(progress));
+        return done;
     }
 
     public static String summarizeStats(List<SimulationStatistics> stats) {
-        if (stats == null || stats.isEmpty()) {
-            return "The list is empty.";
-        }
-
-        // Example summary: Customize based on the type of data in the list
-        StringBuilder summary = new StringBuilder();
-
-        // 
-        summary.append("Robot count;Time (ms);Total steps;Average step count;Highest individual step count;Start width;Start height;Max width;Max height;Phase I step count;Phase II step count;Phase III step count;Phase IV step count;Phase V step count;Phase VI step count;Phase VII step count").append("\n");
-        for (int idx = 0; idx < stats.size(); idx++) {
-            SimulationStatistics elem = stats.get(idx);
-            int stepCount = elem.getStepCounts()
-                .stream()
-                .mapToInt(Integer::intValue)
-                .sum();
-
-            summary.append(elem.getRobotCount());
-
-            summary.append(';').append(elem.getDuration());
-
-            summary.append(';').append(stepCount);
-            summary.append(';').append(String.format("%.2f", (double)stepCount/elem.getRobotCount()));
-            summary.append(';').append(elem.getMaxStepCount());
-
-            summary.append(';').append(elem.getStartWidth());
-            summary.append(';').append(elem.getStartHeight());
-            summary.append(';').append(elem.getMaxWidth());
-            summary.append(';').append(elem.getMaxHeight());
-
-            summary.append(';').append(elem.getStepCountForPhase(1));
-            summary.append(';').append(elem.getStepCountForPhase(2));
-            summary.append(';').append(elem.getStepCountForPhase(3));
-            summary.append(';').append(elem.getStepCountForPhase(4));
-            summary.append(';').append(elem.getStepCountForPhase(5));
-            summary.append(';').append(elem.getStepCountForPhase(6));
-            summary.append(';').append(elem.getStepCountForPhase(7));
-
-            summary.append('\n');
-
-        }
-
-        summary.append('\n');
-
-        return summary.toString();
+        return BatchSummary.summarizeStats(stats);
     }
 
-    public static void writeSummaryToFile(String summary) {
+    // Null if the user cancelled
+    private static File chooseSummaryFile() {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Save Summary as CSV File");
     
         // Show save dialog
         int userSelection = fileChooser.showSaveDialog(null);
-        if (userSelection == JFileChooser.APPROVE_OPTION) {
-            File fileToSave = fileChooser.getSelectedFile();
-    
-            // Ensure file has .csv extension
-            if (!fileToSave.getName().toLowerCase().endsWith(".csv")) {
-                fileToSave = new File(fileToSave.getAbsolutePath() + ".csv");
-            }
-    
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileToSave))) {
-                writer.write(summary);
-                System.out.println("CSV saved to file: " + fileToSave.getAbsolutePath());
-            } catch (IOException e) {
-                System.err.println("Failed to write CSV to file: " + e.getMessage());
-            }
-        } else {
-            System.out.println("Save operation cancelled by user.");
+        if (userSelection != JFileChooser.APPROVE_OPTION) {
+            return null;
+        }
+        File fileToSave = fileChooser.getSelectedFile();
+
+        // Ensure file has .csv extension
+        if (!fileToSave.getName().toLowerCase().endsWith(".csv")) {
+            fileToSave = new File(fileToSave.getAbsolutePath() + ".csv");
         }
+        return fileToSave;
     }
 }
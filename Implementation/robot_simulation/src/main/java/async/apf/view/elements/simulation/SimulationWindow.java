@@ -1,14 +1,19 @@
 package async.apf.view.elements.simulation;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import async.apf.model.Coordinate;
 import async.apf.model.RobotState;
+import async.apf.model.enums.OverflowPolicy;
+import async.apf.model.enums.SimulationEventType;
 import async.apf.model.events.EventEmitter;
 import async.apf.model.events.SimulationEvent;
+import async.apf.model.events.SimulationEventRingBuffer;
 import async.apf.view.RobotViewState;
 import async.apf.view.enums.ViewEventType;
 import async.apf.view.events.ViewSimulationEvent;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -24,10 +29,14 @@ public class SimulationWindow {
 
     private final Stage window;
     private final SimulationCanvas<RobotViewState> simulationCanvas;
-    private final SimulationCanvas<Coordinate> targetCanvas;
+    private final SimulationCanvas<TargetPointViewState> targetCanvas;
     private final EventEmitter simulationEventEmitter;
     private final VBox simulationControlsVBox;
 
+    // Robot events wait here until the next frame, so rendering never holds up the robots
+    private final SimulationEventRingBuffer eventBuffer;
+    private final AnimationTimer frameTimer;
+
     private boolean isSimulationStarted = false;
     private boolean isSimulationRunning = false;
     private boolean isSimulationFinished = false;
@@ -39,17 +48,38 @@ public class SimulationWindow {
         EventEmitter simulationEventEmitter,
         List<RobotViewState> initialStates,
         List<Coordinate> targetStates
+    ) {
+        this(simulationEventEmitter, initialStates, targetStates, OverflowPolicy.COALESCE);
+    }
+
+    public SimulationWindow(
+        EventEmitter simulationEventEmitter,
+        List<RobotViewState> initialStates,
+        List<Coordinate> targetStates,
+        OverflowPolicy overflowPolicy
     ) {
         this.simulationEventEmitter = simulationEventEmitter;
+        this.eventBuffer = new SimulationEventRingBuffer(overflowPolicy);
+        this.frameTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                drainEvents();
+            }
+        };
         this.currentConfiguration = initialStates;
         this.targetPattern = targetStates;
 
         window = new Stage();
         simulationCanvas = new SimulationCanvas<>(400, 400, initialStates);
-        targetCanvas = new SimulationCanvas<>(400, 400, targetStates);
+        List<TargetPointViewState> targetPoints = new ArrayList<>();
+        for (Coordinate target : targetStates) {
+            targetPoints.add(new TargetPointViewState(target));
+        }
+        targetCanvas = new SimulationCanvas<>(400, 400, targetPoints);
         simulationControlsVBox = createControlsBox();
 
         initializeWindow();
+        frameTimer.start();
     }
 
     private void initializeWindow() {
@@ -84,6 +114,7 @@ public class SimulationWindow {
         // Set up the scene
         Scene scene = new Scene(layout, 900, 600);
         window.setScene(scene);
+        window.setOnHidden(e -> stopEventPipeline());
         window.show();
     }
 
@@ -260,10 +291,23 @@ public class SimulationWindow {
         if (event.isGlobalEvent()) {
             handleGlobalEvent(event);
         } else {
-            handleRobotEvent(event);
+            // Called on the robot's thread, the record is applied on the next frame
+            eventBuffer.publish(event);
         }
     }
 
+    // Runs on the JavaFX thread once per frame
+    private void drainEvents() {
+        if (eventBuffer.drain(this::handleRobotEvent) > 0) {
+            refreshCanvas();
+        }
+    }
+
+    private void stopEventPipeline() {
+        frameTimer.stop();
+        eventBuffer.close();
+    }
+
     // Handle global events like SIMULATION_START and SIMULATION_END
     private void handleGlobalEvent(SimulationEvent event) {
         switch (event.getEventType()) {
@@ -282,37 +326,30 @@ public class SimulationWindow {
     }
 
     // Handle robot-specific events
-    private void handleRobotEvent(SimulationEvent event) {
-        int fromX = event.getFromX();
-        int fromY = event.getFromY();
+    // A coalesced record may stand for several moves, ending in any state
+    private void handleRobotEvent(int robotId, SimulationEventType type, int phase, int fromX, int fromY, int toX, int toY, int steps) {
         RobotViewState robot = findRobotAt(fromX, fromY);
         if (robot == null)
             return;
-        
-        int toX = event.getToX();
-        int toY = event.getToY();
 
-        switch (event.getEventType()) {
+        if (steps > 0) {
+            System.out.println("View: Robot " + robotId +
+                "\tcalculated PHASE " + phase +
+                " and moved from (" + fromX + "," + fromY + ")"+
+                        " to (" + toX   + "," + toY   + ")");
+            robot.setLastPhase(phase);
+            robot.incrementStepCount(steps);
+            robot.getCoordinate().setX(toX);
+            robot.getCoordinate().setY(toY);
+        }
+
+        switch (type) {
             case ROBOT_IDLE ->      robot.setState(RobotState.IDLE);
             case ROBOT_LOOKING ->   robot.setState(RobotState.LOOK);
             case ROBOT_COMPUTING -> robot.setState(RobotState.COMPUTE);
-            case ROBOT_MOVING -> {
-                System.out.println("View: Robot " + event.getRobotId() +
-                    "\tcalculated PHASE " + event.getPhase() +
-                    " and moved from (" + event.getFromX() + "," + event.getFromY() + ")"+
-                            " to (" + event.getToX()   + "," + event.getToY()   + ")");
-                robot.setLastPhase(event.getPhase());
-                robot.incrementStepCount();
-                robot.setState(RobotState.MOVE);
-                robot.getCoordinate().setX(event.getToX());
-                robot.getCoordinate().setY(event.getToY());
-            }
+            case ROBOT_MOVING ->    robot.setState(RobotState.MOVE);
             default -> {}
         }
-        refreshCanvas(fromX, fromY);
-        if (fromX != toX || fromY != toY) {
-            refreshCanvas(toX, toY);
-        }
     }
 
     private RobotViewState findRobotAt(int x, int y) {
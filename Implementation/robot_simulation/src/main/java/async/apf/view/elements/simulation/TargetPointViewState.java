@@ -0,0 +1,52 @@
+package async.apf.view.elements.simulation;
+
+import async.apf.interfaces.IPositioned;
+import async.apf.model.Coordinate;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+// A point of the target pattern as drawn on the simulation window's canvas
+class TargetPointViewState implements IPositioned {
+    private final Coordinate position;
+    private boolean followed = false;
+
+    public TargetPointViewState(Coordinate position) {
+        this.position = position;
+    }
+
+    @Override
+    public Coordinate getCoordinate() {
+        return this.position;
+    }
+
+    private static final double POINT_RADIUS = 5.0;
+    @Override
+    public void drawOnCanvas(GraphicsContext gc, double screenX, double screenY, double zoom) {
+        gc.setFill(Color.DODGERBLUE);
+        gc.fillOval(
+            screenX - POINT_RADIUS * zoom / 2,
+            screenY - POINT_RADIUS * zoom / 2,
+            POINT_RADIUS * zoom,
+            POINT_RADIUS * zoom
+        );
+    }
+
+    @Override
+    public void hoverEffect(GraphicsContext gc, double width, double height, double screenX, double screenY, double zoom) {
+    }
+
+    @Override
+    public boolean isFollowed() {
+        return followed;
+    }
+
+    @Override
+    public void follow() {
+        followed = true;
+    }
+
+    @Override
+    public void unfollow() {
+        followed = false;
+    }
+}
@@ -0,0 +1,235 @@
+package async.apf.model;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import async.apf.model.enums.Cardinal;
+
+/**
+ * Moves robots around at random and checks after every move that the dense
+ * bitset search, the sparse index search, the incremental tracker and the
+ * original snake walk over the whole SER all pick the same orientation.
+ */
+class OrientationAgreementTest {
+    private static final int CONFIGURATIONS = 400;
+    private static final int MOVES = 60;
+
+    private static final int[][] DIRECTIONS = { { 0, 1 }, { 1, 0 }, { 0, -1 }, { -1, 0 } };
+
+    private int serGrowths;
+    private int serShrinks;
+    private int sparseChecks;
+    private int denseChecks;
+    private int thresholdCrossings;
+
+    @Test
+    void orientationPathsAgreeAfterRandomMoves() {
+        Random rng = new Random(7L);
+
+        for (int run = 0; run < CONFIGURATIONS; run++) {
+            int robotCount = 2 + rng.nextInt(10);
+            // Sides around the square root of the sparse threshold, so moves cross it both ways
+            int width = 1 + rng.nextInt(20);
+            int height = 1 + rng.nextInt(20);
+            while (width * height < robotCount) {
+                height++;
+            }
+
+            List<Coordinate> coordinates = randomCells(rng, robotCount, width, height);
+            PackedConfiguration configuration = PackedConfiguration.of(coordinates);
+            SERTracker ser = new SERTracker(coordinates);
+            OrientationTracker tracker = new OrientationTracker(configuration);
+            boolean sparse = checkAgreement(configuration, tracker);
+
+            for (int move = 0; move < MOVES; move++) {
+                int robot = rng.nextInt(robotCount);
+                int[] direction = DIRECTIONS[rng.nextInt(DIRECTIONS.length)];
+                int fromX = configuration.getX(robot);
+                int fromY = configuration.getY(robot);
+                int toX = fromX + direction[0];
+                int toY = fromY + direction[1];
+                if (configuration.contains(toX, toY)) continue;
+
+                long areaBefore = (long) ser.getWidth() * ser.getHeight();
+                configuration.moveBy(robot, direction[0], direction[1]);
+                ser.move(fromX, fromY, toX, toY);
+                tracker.move(fromX, fromY, toX, toY, ser);
+
+                long areaAfter = (long) ser.getWidth() * ser.getHeight();
+                if (areaAfter > areaBefore) serGrowths++;
+                if (areaAfter < areaBefore) serShrinks++;
+                boolean wasSparse = sparse;
+                sparse = checkAgreement(configuration, tracker);
+                if (sparse != wasSparse) thresholdCrossings++;
+            }
+        }
+
+        // The moves are only convincing if they took every path
+        assertTrue(serGrowths > 0, "The SER never grew");
+        assertTrue(serShrinks > 0, "The SER never shrank");
+        assertTrue(sparseChecks > 0, "No configuration was sparse");
+        assertTrue(denseChecks > 0, "No configuration was dense");
+        assertTrue(thresholdCrossings > 0, "No move crossed the sparse threshold");
+    }
+
+    // Returns whether the configuration counts as sparse
+    private boolean checkAgreement(PackedConfiguration configuration, OrientationTracker tracker) {
+        int minX = configuration.getMinX();
+        int minY = configuration.getMinY();
+        int serWidth = configuration.getMaxX() - minX + 1;
+        int serHeight = configuration.getMaxY() - minY + 1;
+        boolean rotated = serWidth > serHeight;
+        int width = rotated ? serHeight : serWidth;
+        int height = rotated ? serWidth : serHeight;
+
+        int[] xs = new int[configuration.size()];
+        int[] ys = new int[configuration.size()];
+        for (int i = 0; i < xs.length; i++) {
+            int x = configuration.getX(i) - minX;
+            int y = configuration.getY(i) - minY;
+            xs[i] = rotated ? serHeight - 1 - y : x;
+            ys[i] = rotated ? x : y;
+        }
+
+        boolean sparse = OrientationHelper.isSparse(xs.length, serWidth, serHeight);
+        if (sparse) {
+            sparseChecks++;
+        }
+        else {
+            denseChecks++;
+        }
+
+        String expected = referenceOrientation(width, height, xs, ys, rotated);
+        assertEquals(expected, describe(OrientationHelper.findBestOrientation(width, height, xs, ys), rotated),
+            "Dense search differs for " + configuration);
+        assertEquals(expected, describe(OrientationHelper.findBestOrientationSparse(width, height, xs, ys), rotated),
+            "Sparse search differs for " + configuration);
+        assertEquals(expected, describe(tracker.getOrientation(), false),
+            "Tracker differs for " + configuration);
+        assertEquals(expected, describe(OrientationHelper.orientConfiguration(configuration), false),
+            "orientConfiguration differs for " + configuration);
+        return sparse;
+    }
+
+    // The orientation as the caller sees it, turned back EAST if it was found on the rotated SER
+    private static String describe(ConfigurationOrientation orientation, boolean rotated) {
+        Cardinal cardinal = orientation.getOrientation();
+        if (rotated) {
+            cardinal = turnEast(cardinal);
+        }
+        return describe(cardinal, orientation.isXMirrored(), orientation.getWidth(), orientation.getHeight(), orientation.getBinaryString());
+    }
+
+    private static String describe(Cardinal cardinal, boolean xMirrored, int width, int height, String binaryString) {
+        return cardinal + (xMirrored ? " mirrored " : " ") + width + "x" + height + " " + binaryString;
+    }
+
+    private static Cardinal turnEast(Cardinal cardinal) {
+        return OrientationHelper.valueToCardinal(OrientationHelper.cardinalValue(cardinal) + OrientationHelper.cardinalValue(Cardinal.EAST));
+    }
+
+    private static List<Coordinate> randomCells(Random rng, int count, int width, int height) {
+        Set<Coordinate> cells = new HashSet<>();
+        List<Coordinate> coordinates = new ArrayList<>();
+        while (coordinates.size() < count) {
+            Coordinate cell = new Coordinate(rng.nextInt(width), rng.nextInt(height));
+            if (cells.add(cell)) {
+                coordinates.add(cell);
+            }
+        }
+        return coordinates;
+    }
+
+    // #region REFERENCE
+
+    // One snake walk of the original search: leftToRight, bottomToTop, weaveHorizontally, orientation, xMirrored
+    private record Walk(boolean leftToRight, boolean bottomToTop, boolean weaveHorizontally, Cardinal orientation, boolean xMirrored) {}
+
+    private static final List<Walk> TALL_WALKS = List.of(
+        new Walk(true,  true,  true,  Cardinal.NORTH, false),
+        new Walk(false, true,  true,  Cardinal.NORTH, true),
+        new Walk(false, false, true,  Cardinal.SOUTH, false),
+        new Walk(true,  false, true,  Cardinal.SOUTH, true)
+    );
+
+    private static final List<Walk> SQUARE_WALKS = List.of(
+        new Walk(true,  true,  true,  Cardinal.NORTH, false),
+        new Walk(false, true,  true,  Cardinal.NORTH, true),
+        new Walk(true,  true,  false, Cardinal.EAST,  true),
+        new Walk(true,  false, false, Cardinal.EAST,  false),
+        new Walk(false, true,  false, Cardinal.WEST,  false),
+        new Walk(false, false, false, Cardinal.WEST,  true),
+        new Walk(true,  false, true,  Cardinal.SOUTH, true),
+        new Walk(false, false, true,  Cardinal.SOUTH, false)
+    );
+
+    private static final List<Walk> SINGLE_COLUMN_WALKS = List.of(
+        new Walk(true,  true,  true,  Cardinal.NORTH, false),
+        new Walk(false, false, true,  Cardinal.SOUTH, false)
+    );
+
+    /**
+     * The original search: walks every candidate snake path over a matrix of
+     * the whole tall SER, then drops candidates index by index until one is
+     * left or the strings end.
+     */
+    private static String referenceOrientation(int width, int height, int[] xs, int[] ys, boolean rotated) {
+        boolean[][] matrix = new boolean[width][height];
+        for (int i = 0; i < xs.length; i++) {
+            matrix[xs[i]][ys[i]] = true;
+        }
+
+        List<Walk> walks = width == 1 ? SINGLE_COLUMN_WALKS
+            : height > width ? TALL_WALKS
+            : SQUARE_WALKS;
+        List<Walk> remaining = new ArrayList<>(walks);
+        List<String> strings = new ArrayList<>();
+        for (Walk walk : walks) {
+            strings.add(snakeIterate(matrix, width, height, walk));
+        }
+
+        for (int index = 0; index < width * height && strings.size() > 1; index++) {
+            final int finalIndex = index;
+            if (strings.stream().anyMatch(string -> string.charAt(finalIndex) == '1')) {
+                for (int i = 0; i < strings.size(); i++) {
+                    if (strings.get(i).charAt(index) == '0') {
+                        strings.remove(i);
+                        remaining.remove(i);
+                        i--;
+                    }
+                }
+            }
+        }
+
+        Walk best = remaining.get(0);
+        Cardinal cardinal = rotated ? turnEast(best.orientation()) : best.orientation();
+        return describe(cardinal, best.xMirrored(), width, height, strings.get(0));
+    }
+
+    private static String snakeIterate(boolean[][] matrix, int width, int height, Walk walk) {
+        StringBuilder result = new StringBuilder(width * height);
+        boolean flip = false;
+        for (int outer = 0; outer < (walk.weaveHorizontally() ? height : width); outer++) {
+            for (int inner = 0; inner < (walk.weaveHorizontally() ? width : height); inner++) {
+                int x = walk.weaveHorizontally()
+                    ? (walk.leftToRight() == flip ? width - inner - 1 : inner)
+                    : (walk.leftToRight() ? outer : width - outer - 1);
+                int y = walk.weaveHorizontally()
+                    ? (walk.bottomToTop() ? outer : height - outer - 1)
+                    : (walk.bottomToTop() == flip ? height - inner - 1 : inner);
+                result.append(matrix[x][y] ? '1' : '0');
+            }
+            flip = !flip;
+        }
+        return result.toString();
+    }
+
+    // #endregion REFERENCE
+}
@@ -0,0 +1,216 @@
+package async.apf.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import async.apf.model.enums.Cardinal;
+import async.apf.model.events.EventEmitter;
+
+/**
+ * Checks the phase table of the robot against the original condition
+ * checks, which evaluated C0 to C8 one by one from the coordinate lists
+ * and tried the phases in order.
+ */
+class RobotPhaseTableTest {
+    private static final int PAIRS = 20_000;
+
+    @Test
+    void phaseTableMatchesOriginalPredicates() {
+        Random rng = new Random(20240611L);
+        int[] seenPhases = new int[8];
+
+        for (int pair = 0; pair < PAIRS; pair++) {
+            int width = 2 + rng.nextInt(6);
+            int height = 2 + rng.nextInt(6);
+            int robotCount = 2 + rng.nextInt(Math.min(7, width * height - 1));
+            List<Coordinate> target = randomCells(rng, robotCount, width, height);
+            List<Coordinate> configuration = randomConfiguration(rng, target, width, height);
+
+            ConfigurationOrientation targetOrientation = orientationOf(target);
+            ConfigurationOrientation configurationOrientation = orientationOf(configuration);
+            RobotOrientation current = new RobotOrientation(configurationOrientation, configurationOrientation.getHeadPosition());
+
+            Robot robot = new Robot(new EventEmitter());
+            robot.beginCycle(0);
+            robot.supplyConfigurations(current, targetOrientation);
+
+            int expected = originalPhase(current, targetOrientation);
+            assertEquals(expected, robot.selectPhase(),
+                "Phase differs for configuration " + configuration + " and target " + target);
+            seenPhases[expected]++;
+        }
+
+        // The pairs are only convincing if they reach every phase
+        for (int phase = 0; phase < seenPhases.length; phase++) {
+            assertTrue(seenPhases[phase] > 0, "No pair selected phase " + phase);
+        }
+    }
+
+    /**
+     * The cells as an already oriented configuration. The conditions do not
+     * care whether it is the canonical orientation, and this way the pairs
+     * can be edited in the frame the conditions are checked in.
+     */
+    private static ConfigurationOrientation orientationOf(List<Coordinate> cells) {
+        int width = 1;
+        int height = 1;
+        for (Coordinate cell : cells) {
+            width = Math.max(width, cell.getX() + 1);
+            height = Math.max(height, cell.getY() + 1);
+        }
+        int[] indices = new int[cells.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = OrientationHelper.coordinateToIndex(cells.get(i), width);
+        }
+        Arrays.sort(indices);
+        return ConfigurationOrientation.fromCellIndices(indices, Cardinal.NORTH, false, width, height);
+    }
+
+    private static List<Coordinate> randomCells(Random rng, int count, int width, int height) {
+        Set<Coordinate> cells = new HashSet<>();
+        List<Coordinate> coordinates = new ArrayList<>();
+        while (coordinates.size() < count) {
+            Coordinate cell = new Coordinate(rng.nextInt(width), rng.nextInt(height));
+            if (cells.add(cell)) {
+                coordinates.add(cell);
+            }
+        }
+        return coordinates;
+    }
+
+    /**
+     * A configuration for the target. Most differ from it only in a few
+     * robots, some of them moved above or to the right of everything else,
+     * so that the conditions comparing the two are true often enough.
+     */
+    private static List<Coordinate> randomConfiguration(Random rng, List<Coordinate> target, int width, int height) {
+        if (rng.nextInt(6) == 0) {
+            return randomCells(rng, target.size(), width, height);
+        }
+        List<Coordinate> configuration = OrientationHelper.copyCoordinates(target);
+        ConfigurationOrientation targetOrientation = orientationOf(target);
+        if (rng.nextBoolean()) {
+            // The tail of the target, moved to a free line above the target
+            Coordinate tail = targetOrientation.getTailPosition();
+            int y = height + rng.nextInt(3);
+            int x = rng.nextBoolean() ? tail.getX() : rng.nextInt(width + 2);
+            configuration.set(configuration.indexOf(tail), new Coordinate(x, y));
+        }
+        if (rng.nextBoolean()) {
+            // The head of the target, moved along the first line
+            Coordinate head = targetOrientation.getHeadPosition();
+            moveToFreeCell(rng, configuration, configuration.indexOf(head), width, 1);
+        }
+        int moves = rng.nextInt(3);
+        for (int move = 0; move < moves; move++) {
+            moveToFreeCell(rng, configuration, rng.nextInt(configuration.size()), width + 2, height + 2);
+        }
+        return configuration;
+    }
+
+    private static void moveToFreeCell(Random rng, List<Coordinate> coordinates, int index, int width, int height) {
+        Set<Coordinate> cells = new HashSet<>(coordinates);
+        if (cells.size() >= width * height) return;
+        Coordinate cell;
+        do {
+            cell = new Coordinate(rng.nextInt(width), rng.nextInt(height));
+        } while (cells.contains(cell));
+        coordinates.set(index, cell);
+    }
+
+    // #region ORIGINAL PREDICATES
+
+    private static int originalPhase(RobotOrientation current, ConfigurationOrientation target) {
+        boolean[] c = originalConditions(current, target);
+        if (checkForPhaseI(c))   return 1;
+        if (checkForPhaseII(c))  return 2;
+        if (checkForPhaseIII(c)) return 3;
+        if (checkForPhaseIV(c))  return 4;
+        if (checkForPhaseV(c))   return 5;
+        if (checkForPhaseVI(c))  return 6;
+        if (checkForPhaseVII(c)) return 7;
+        return 0;
+    }
+
+    private static boolean[] originalConditions(RobotOrientation current, ConfigurationOrientation target) {
+        List<Coordinate> robots = current.getCoordinates();
+        List<Coordinate> targets = target.getCoordinates();
+        Coordinate tail = current.getTailPosition();
+        Coordinate head = current.getHeadPosition();
+
+        boolean[] c = new boolean[9];
+        c[0] = sameCoordinates(robots, targets, 0, robots.size());
+        c[1] = sameCoordinates(robots, targets, 0, robots.size() - 1);
+        c[2] = sameCoordinates(robots, targets, 1, robots.size() - 1);
+        c[3] = tail.getX() == target.getTailPosition().getX();
+
+        c[4] = true;
+        for (Coordinate robot : robots) {
+            if (robot.getY() >= tail.getY() && !robot.equals(tail)) c[4] = false;
+        }
+        for (Coordinate position : targets) {
+            if (position.getY() >= tail.getY()) c[4] = false;
+        }
+
+        c[5] = tail.getY() % 2 == 0;
+        c[6] = current.getWidth() != current.getHeight();
+
+        c[7] = true;
+        for (Coordinate robot : robots) {
+            if (robot.getX() >= tail.getX() && !robot.equals(tail)) c[7] = false;
+        }
+        for (Coordinate position : targets) {
+            if (position.getX() >= tail.getX()) c[7] = false;
+        }
+
+        c[8] = head.getX() == 0 && head.getY() == 0;
+        return c;
+    }
+
+    private static boolean sameCoordinates(List<Coordinate> robots, List<Coordinate> targets, int from, int to) {
+        for (int idx = from; idx < to; idx++) {
+            if (!robots.get(idx).equals(targets.get(idx))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean checkForPhaseI(boolean[] c) {
+        return !(c[4] && c[5] && c[6]) && !(c[1] && c[3]);
+    }
+
+    private static boolean checkForPhaseII(boolean[] c) {
+        return (c[4] && c[5] && c[6] && !c[8]) && ((c[2] && !c[3]) || !c[2]);
+    }
+
+    private static boolean checkForPhaseIII(boolean[] c) {
+        return c[4] && c[5] && c[6] && c[8] && !c[2] && !c[7];
+    }
+
+    private static boolean checkForPhaseIV(boolean[] c) {
+        return c[4] && c[5] && c[6] && c[7] && c[8] && !c[2];
+    }
+
+    private static boolean checkForPhaseV(boolean[] c) {
+        return c[2] && c[4] && c[5] && c[6] && c[8] && !c[3];
+    }
+
+    private static boolean checkForPhaseVI(boolean[] c) {
+        return !c[1] && c[2] && c[3] && c[4] && c[5] && c[6];
+    }
+
+    private static boolean checkForPhaseVII(boolean[] c) {
+        return !c[0] && c[1] && c[3];
+    }
+
+    // #endregion ORIGINAL PREDICATES
+}